@@ -17,6 +17,7 @@ import android.provider.Settings;
 import android.support.annotation.NonNull;
 import android.support.v4.content.FileProvider;
 
+import com.liyi.sutils.utils.encrypt.HexUtil;
 import com.liyi.sutils.utils.log.LogUtil;
 
 import java.io.BufferedReader;
@@ -29,7 +30,6 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 
 /**
@@ -271,17 +271,7 @@ public final class AppUtil {
             byte[] cert = info.signatures[0].toByteArray();
             MessageDigest md = MessageDigest.getInstance("SHA1");
             byte[] publicKey = md.digest(cert);
-            StringBuffer hexString = new StringBuffer();
-            for (int i = 0; i < publicKey.length; i++) {
-                String appendString = Integer.toHexString(0xFF & publicKey[i]).toUpperCase(Locale.US);
-                if (appendString.length() == 1) {
-                    hexString.append("0");
-                }
-                hexString.append(appendString);
-                hexString.append(":");
-            }
-            String result = hexString.toString();
-            String sha1 = result.substring(0, result.length() - 1);
+            String sha1 = HexUtil.encode(publicKey, ':', true);
             LogUtil.i(TAG, String.format("AppSHA1 ========> SHA1 is %s", sha1));
             return sha1;
         } catch (PackageManager.NameNotFoundException e) {
@@ -2,6 +2,7 @@ package com.liyi.sutils.utils;
 
 import android.os.Environment;
 
+import com.liyi.sutils.utils.io.DirSizeTracker;
 import com.liyi.sutils.utils.io.FileUtil;
 
 import java.io.File;
@@ -22,7 +23,10 @@ public final class CleanUtil {
      * @return {@code true}: 清除成功<br>{@code false}: 清除失败
      */
     public static boolean cleanInternalCache() {
-        return FileUtil.getInstance().delete(SUtils.getApp().getCacheDir());
+        File cacheDir = SUtils.getApp().getCacheDir();
+        boolean isSuccess = FileUtil.getInstance().delete(cacheDir);
+        DirSizeTracker.getInstance().invalidate(cacheDir);
+        return isSuccess;
     }
 
     /**
@@ -66,6 +70,31 @@ public final class CleanUtil {
         return FileUtil.getInstance().delete(SUtils.getApp().getFilesDir().getParent() + File.separator + "shared_prefs");
     }
 
+    /**
+     * 获取内部缓存的大小
+     * <p>/data/data/com.xxx.xxx/cache</p>
+     * <p>
+     * 结果会被缓存，再次获取时只重新统计发生了变化的文件夹
+     *
+     * @return 内部缓存的字节数
+     */
+    public static long getInternalCacheSize() {
+        return DirSizeTracker.getInstance().getSize(SUtils.getApp().getCacheDir());
+    }
+
+    /**
+     * 获取外部缓存的大小
+     * <p>/storage/emulated/0/android/data/com.xxx.xxx/cache</p>
+     *
+     * @return 外部缓存的字节数，没有外部存储时返回 0
+     */
+    public static long getExternalCacheSize() {
+        if (!Environment.MEDIA_MOUNTED.equals(Environment.getExternalStorageState())) {
+            return 0;
+        }
+        return DirSizeTracker.getInstance().getSize(SUtils.getApp().getExternalCacheDir());
+    }
+
     /**
      * 清除外部缓存
      * <p>/storage/emulated/0/android/data/com.xxx.xxx/cache</p>
@@ -73,7 +102,12 @@ public final class CleanUtil {
      * @return {@code true}: 清除成功<br>{@code false}: 清除失败
      */
     public static boolean cleanExternalCache() {
-        return Environment.MEDIA_MOUNTED.equals(Environment.getExternalStorageState())
-                && FileUtil.getInstance().delete(SUtils.getApp().getExternalCacheDir());
+        if (!Environment.MEDIA_MOUNTED.equals(Environment.getExternalStorageState())) {
+            return false;
+        }
+        File cacheDir = SUtils.getApp().getExternalCacheDir();
+        boolean isSuccess = FileUtil.getInstance().delete(cacheDir);
+        DirSizeTracker.getInstance().invalidate(cacheDir);
+        return isSuccess;
     }
 }
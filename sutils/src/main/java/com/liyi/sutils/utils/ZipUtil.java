@@ -2,19 +2,45 @@ package com.liyi.sutils.utils;
 
 import android.text.TextUtils;
 
+import com.liyi.sutils.utils.io.CancelSignal;
+
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
 /**
@@ -126,14 +152,174 @@ public final class ZipUtil {
                 }
                 zos.closeEntry();
             } finally {
-                if (zos != null) {
-                    zos.close();
+                // zos 由调用方关闭，这里只关闭当前文件的输入流
+                if (is != null) {
+                    is.close();
                 }
             }
         }
         return true;
     }
 
+    /**
+     * 多线程压缩文件
+     *
+     * @param resFilePath 待压缩文件路径
+     * @param zipFilePath 压缩文件路径
+     * @return {@code true}: 压缩成功<br>{@code false}: 压缩失败
+     * @throws IOException IO 错误时抛出
+     */
+    public static boolean zipFileParallel(String resFilePath, String zipFilePath) throws IOException {
+        return zipFileParallel(getFileByPath(resFilePath), getFileByPath(zipFilePath), null,
+                Runtime.getRuntime().availableProcessors(), DEFAULT_LEVEL_POLICY);
+    }
+
+    /**
+     * 多线程压缩文件
+     * <p>
+     * 各个文件由多个线程同时压缩到独立的缓冲区中，再按顺序写入压缩文件，结果与单线程压缩相同；
+     * 较大的文件在写入时直接压缩，不占用额外的内存。不支持 Zip64，压缩文件不能超过 4G，文件数不能超过 65535
+     *
+     * @param resFile     待压缩文件
+     * @param zipFile     压缩文件
+     * @param comment     压缩文件的注释
+     * @param parallelism 同时压缩的线程数
+     * @param policy      按文件选择压缩级别，为 null 时使用 {@link #DEFAULT_LEVEL_POLICY}
+     * @return {@code true}: 压缩成功<br>{@code false}: 压缩失败
+     * @throws IOException IO 错误时抛出
+     */
+    public static boolean zipFileParallel(File resFile, File zipFile, String comment, int parallelism,
+                                          CompressLevelPolicy policy) throws IOException {
+        if (resFile == null || zipFile == null) return false;
+        List<ZipSource> sources = new ArrayList<>();
+        collectSources(resFile, "", comment, sources);
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(zipFile);
+            writeParallel(sources, os, parallelism, policy != null ? policy : DEFAULT_LEVEL_POLICY);
+        } finally {
+            if (os != null) {
+                os.close();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按压缩文件中的顺序收集待压缩的文件，只为空文件夹创建条目，与 {@link #zipFile(File, File, String)} 一致
+     */
+    private static void collectSources(File resFile, String rootPath, String comment, List<ZipSource> sources) {
+        rootPath = rootPath + (TextUtils.isEmpty(rootPath) ? "" : "/") + resFile.getName();
+        if (resFile.isDirectory()) {
+            File[] fileList = resFile.listFiles();
+            if (fileList == null || fileList.length <= 0) {
+                sources.add(new ZipSource(rootPath + '/', resFile, comment));
+            } else {
+                for (File file : fileList) {
+                    collectSources(file, rootPath, comment, sources);
+                }
+            }
+        } else {
+            sources.add(new ZipSource(rootPath, resFile, comment));
+        }
+    }
+
+    /**
+     * 多线程压缩并按顺序写入
+     * <p>
+     * 同时在压缩或等待写入的条目数不超过线程数的 2 倍，限制占用的内存
+     */
+    private static void writeParallel(List<ZipSource> sources, OutputStream os, int parallelism,
+                                      CompressLevelPolicy policy) throws IOException {
+        parallelism = Math.max(1, parallelism);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        ZipStreamWriter writer = new ZipStreamWriter(os);
+        LinkedList<Future<PreparedEntry>> window = new LinkedList<>();
+        int next = 0;
+        try {
+            while (next < sources.size() || !window.isEmpty()) {
+                while (next < sources.size() && window.size() < parallelism * 2) {
+                    final ZipSource source = sources.get(next++);
+                    final int level = source.file.isDirectory() ? LEVEL_STORED : policy.getLevel(source.name);
+                    window.add(executor.submit(new Callable<PreparedEntry>() {
+                        @Override
+                        public PreparedEntry call() throws IOException {
+                            return prepareEntry(source, level);
+                        }
+                    }));
+                }
+                writer.write(window.removeFirst().get());
+            }
+            writer.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("zip interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 在工作线程中压缩文件或计算校验值
+     */
+    private static PreparedEntry prepareEntry(ZipSource source, int level) throws IOException {
+        PreparedEntry entry = new PreparedEntry(source, level);
+        if (source.name.endsWith("/")) {
+            entry.method = ZipEntry.STORED;
+            return entry;
+        }
+        long length = source.file.length();
+        if (level != LEVEL_STORED && length > MAX_BUFFERED_ENTRY) {
+            // 较大的文件在写入时直接压缩
+            entry.method = ZipEntry.DEFLATED;
+            entry.streamed = true;
+            return entry;
+        }
+        CRC32 crc = new CRC32();
+        InputStream is = null;
+        try {
+            is = new FileInputStream(source.file);
+            byte buffer[] = new byte[BUFFER_LEN];
+            int len;
+            if (level == LEVEL_STORED) {
+                // 不压缩的文件只计算校验值，写入时再读取
+                entry.method = ZipEntry.STORED;
+                while ((len = is.read(buffer)) != -1) {
+                    crc.update(buffer, 0, len);
+                    entry.size += len;
+                }
+                entry.compressedSize = entry.size;
+            } else {
+                entry.method = ZipEntry.DEFLATED;
+                Deflater deflater = new Deflater(level, true);
+                ByteArrayOutputStream baos = new ByteArrayOutputStream((int) Math.min(length, MAX_BUFFERED_ENTRY) / 2 + 64);
+                try {
+                    DeflaterOutputStream dos = new DeflaterOutputStream(baos, deflater, BUFFER_LEN);
+                    while ((len = is.read(buffer)) != -1) {
+                        crc.update(buffer, 0, len);
+                        dos.write(buffer, 0, len);
+                        entry.size += len;
+                    }
+                    dos.finish();
+                } finally {
+                    deflater.end();
+                }
+                entry.data = baos.toByteArray();
+                entry.compressedSize = entry.data.length;
+            }
+            entry.crc = crc.getValue();
+        } finally {
+            if (is != null) is.close();
+        }
+        return entry;
+    }
+
     /**
      * 解压文件
      *
@@ -181,52 +367,508 @@ public final class ZipUtil {
      * @throws IOException IO 错误时抛出
      */
     public static List<File> unzipFileByKeyword(File zipFile, File destDir, String keyword) throws IOException {
+        return unzipFileByKeyword(zipFile, destDir, keyword, null);
+    }
+
+    /**
+     * 按默认限制安全地解压文件
+     *
+     * @param zipFile 待解压文件
+     * @param destDir 目标目录
+     * @return 文件链表
+     * @throws IOException IO 错误或者超出限制时抛出
+     * @see UnzipLimits
+     */
+    public static List<File> unzipFileSafely(File zipFile, File destDir) throws IOException {
+        return unzipFileByKeyword(zipFile, destDir, null, new UnzipLimits());
+    }
+
+    /**
+     * 解压带有关键字的文件，并限制解压的大小和数量
+     * <p>
+     * 限制在解压的过程中检查，超出限制时立即停止，并删除未写完的文件
+     *
+     * @param zipFile 待解压文件
+     * @param destDir 目标目录
+     * @param keyword 关键字
+     * @param limits  解压的限制，为 null 时不限制
+     * @return 返回带有关键字的文件链表
+     * @throws IOException IO 错误或者超出限制（{@link ZipException}）时抛出
+     */
+    public static List<File> unzipFileByKeyword(File zipFile, File destDir, String keyword, UnzipLimits limits) throws IOException {
         if (zipFile == null || destDir == null) return null;
         List<File> files = new ArrayList<>();
+        String destPath = getCanonicalDir(destDir);
+        UnzipGuard guard = limits == null ? null : new UnzipGuard(limits);
+        byte buffer[] = new byte[BUFFER_LEN];
         ZipFile zf = new ZipFile(zipFile);
-        Enumeration<?> entries = zf.entries();
-        if (TextUtils.isEmpty(keyword)) {
+        try {
+            Enumeration<?> entries = zf.entries();
             while (entries.hasMoreElements()) {
                 ZipEntry entry = ((ZipEntry) entries.nextElement());
                 String entryName = entry.getName();
-                if (!unzipChildFile(destDir, files, zf, entry, entryName)) return files;
+                if (!TextUtils.isEmpty(keyword) && !entryName.contains(keyword)) continue;
+                if (guard != null) guard.checkEntries(files.size() + 1);
+                if (!unzipChildFile(destDir, destPath, files, zf, entry, entryName, buffer, guard)) return files;
             }
+        } finally {
+            zf.close();
+        }
+        return files;
+    }
+
+    private static boolean unzipChildFile(File destDir, String destPath, List<File> files, ZipFile zf, ZipEntry entry,
+                                          String entryName, byte[] buffer, UnzipGuard guard) throws IOException {
+        File file = getEntryFile(destDir, destPath, entryName);
+        files.add(file);
+        if (entry.isDirectory()) {
+            if (!createOrExistsDir(file)) return false;
         } else {
+            if (!createOrExistsFile(file)) return false;
+            extractEntry(zf, entry, file, buffer, guard);
+        }
+        return true;
+    }
+
+    /**
+     * 多线程解压文件
+     *
+     * @param zipFile 待解压文件
+     * @param destDir 目标目录
+     * @return 文件链表
+     * @throws IOException IO 错误时抛出
+     */
+    public static List<File> unzipFileParallel(File zipFile, File destDir) throws IOException {
+        return unzipFileParallel(zipFile, destDir, null, Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    /**
+     * 多线程解压带有关键字的文件
+     *
+     * @param zipFile     待解压文件
+     * @param destDir     目标目录
+     * @param keyword     关键字，为空时解压所有文件
+     * @param parallelism 同时解压的线程数
+     * @param listener    解压进度的监听，在解压线程中回调，可以为 null
+     * @return 返回带有关键字的文件链表，顺序与压缩文件中一致
+     * @throws IOException IO 错误或者无法创建文件时抛出
+     */
+    public static List<File> unzipFileParallel(File zipFile, File destDir, String keyword, int parallelism,
+                                               OnUnzipProgressListener listener) throws IOException {
+        return unzipFileParallel(zipFile, destDir, keyword, parallelism, null, listener);
+    }
+
+    /**
+     * 多线程解压带有关键字的文件
+     * <p>
+     * 只读取一次中央目录，先创建好所有的文件夹，再由多个线程同时解压，每个线程使用独立的 ZipFile，互不阻塞
+     *
+     * @param zipFile     待解压文件
+     * @param destDir     目标目录
+     * @param keyword     关键字，为空时解压所有文件
+     * @param parallelism 同时解压的线程数
+     * @param limits      解压的限制，为 null 时不限制
+     * @param listener    解压进度的监听，在解压线程中回调，可以为 null
+     * @return 返回带有关键字的文件链表，顺序与压缩文件中一致
+     * @throws IOException IO 错误、无法创建文件或者超出限制（{@link ZipException}）时抛出
+     */
+    public static List<File> unzipFileParallel(File zipFile, File destDir, String keyword, int parallelism,
+                                               UnzipLimits limits, final OnUnzipProgressListener listener) throws IOException {
+        if (zipFile == null || destDir == null) return null;
+        String destPath = getCanonicalDir(destDir);
+        final UnzipGuard guard = limits == null ? null : new UnzipGuard(limits);
+        final List<String> names = new ArrayList<>();
+        final List<File> files = new ArrayList<>();
+        ZipFile zf = new ZipFile(zipFile);
+        try {
+            Enumeration<?> entries = zf.entries();
             while (entries.hasMoreElements()) {
                 ZipEntry entry = ((ZipEntry) entries.nextElement());
                 String entryName = entry.getName();
-                if (entryName.contains(keyword)) {
-                    if (!unzipChildFile(destDir, files, zf, entry, entryName)) return files;
+                if (!TextUtils.isEmpty(keyword) && !entryName.contains(keyword)) continue;
+                if (guard != null) guard.checkEntries(files.size() + 1);
+                File file = getEntryFile(destDir, destPath, entryName);
+                files.add(file);
+                // 先创建所有的文件夹，解压线程只需要写文件
+                File dir = entry.isDirectory() ? file : file.getParentFile();
+                if (!createOrExistsDir(dir)) {
+                    throw new IOException("can't create dir: " + dir);
                 }
+                names.add(entry.isDirectory() ? null : entryName);
+            }
+        } finally {
+            zf.close();
+        }
+        final int total = names.size();
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger completed = new AtomicInteger();
+        final CancelSignal failed = new CancelSignal();
+        final File source = zipFile;
+        parallelism = Math.max(1, Math.min(parallelism, total));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < parallelism; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        ZipFile zf = new ZipFile(source);
+                        try {
+                            byte buffer[] = new byte[BUFFER_LEN * 8];
+                            int index;
+                            while (!failed.isCancelled() && (index = next.getAndIncrement()) < total) {
+                                String entryName = names.get(index);
+                                File file = files.get(index);
+                                if (entryName != null) {
+                                    ZipEntry entry = zf.getEntry(entryName);
+                                    if (entry == null) {
+                                        throw new IOException("entry not found: " + entryName);
+                                    }
+                                    extractEntry(zf, entry, file, buffer, guard);
+                                }
+                                if (listener != null) {
+                                    listener.onProgress(file, completed.incrementAndGet(), total);
+                                }
+                            }
+                        } catch (IOException e) {
+                            failed.cancel();
+                            throw e;
+                        } finally {
+                            zf.close();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("unzip interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
         return files;
     }
 
-    private static boolean unzipChildFile(File destDir, List<File> files, ZipFile zf, ZipEntry entry, String entryName) throws IOException {
-        String filePath = destDir + File.separator + entryName;
-        File file = new File(filePath);
-        files.add(file);
-        if (entry.isDirectory()) {
-            if (!createOrExistsDir(file)) return false;
-        } else {
-            if (!createOrExistsFile(file)) return false;
-            InputStream in = null;
-            OutputStream out = null;
+    private static void extractEntry(ZipFile zf, ZipEntry entry, File file, byte[] buffer, UnzipGuard guard) throws IOException {
+        InputStream in = null;
+        OutputStream out = null;
+        boolean success = false;
+        try {
+            in = zf.getInputStream(entry);
+            out = new FileOutputStream(file);
+            long written = 0;
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                written += len;
+                if (guard != null) guard.checkRead(entry, written, len);
+                out.write(buffer, 0, len);
+            }
+            success = true;
+        } finally {
+            if (in != null) in.close();
+            if (out != null) out.close();
+            if (!success) file.delete();
+        }
+    }
+
+    /**
+     * 获取条目解压后的文件，条目路径为绝对路径，或者路径中的 ".." 等使文件不在目标目录中时抛出异常（Zip Slip）
+     */
+    private static File getEntryFile(File destDir, String destPath, String entryName) throws IOException {
+        // new File(destDir, "/a") 会把绝对路径拼接到目标目录下，需要单独拒绝
+        if (entryName.startsWith("/") || entryName.startsWith("\\") || new File(entryName).isAbsolute()) {
+            throw new ZipException("entry has an absolute path: " + entryName);
+        }
+        File file = new File(destDir, entryName);
+        String path = file.getCanonicalPath();
+        if (!path.startsWith(destPath) && !(path + File.separator).equals(destPath)) {
+            throw new ZipException("entry is outside of the target dir: " + entryName);
+        }
+        return file;
+    }
+
+    /**
+     * @return 以分隔符结尾的目标目录规范路径
+     */
+    private static String getCanonicalDir(File destDir) throws IOException {
+        String path = destDir.getCanonicalPath();
+        return path.endsWith(File.separator) ? path : path + File.separator;
+    }
+
+    /**
+     * 解压的限制
+     * <p>
+     * 用于解压不可信的压缩文件，防止压缩炸弹耗尽存储空间
+     */
+    public static final class UnzipLimits {
+        // 解压的最大总字节数
+        private long maxTotalBytes = 1024 * 1024 * 1024;
+        // 解压的最大条目数
+        private int maxEntries = 0xFFFF;
+        // 单个条目的最大压缩比
+        private int maxCompressionRatio = 100;
+
+        /**
+         * 设置解压的最大总字节数，默认 1G
+         *
+         * @param maxTotalBytes 最大总字节数
+         * @return {@link UnzipLimits}
+         */
+        public UnzipLimits setMaxTotalBytes(long maxTotalBytes) {
+            this.maxTotalBytes = maxTotalBytes;
+            return this;
+        }
+
+        /**
+         * 设置解压的最大条目数（包括文件夹），默认 65535
+         *
+         * @param maxEntries 最大条目数
+         * @return {@link UnzipLimits}
+         */
+        public UnzipLimits setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * 设置单个条目解压后与压缩后的最大字节数比例，默认 100
+         * <p>
+         * 条目解压后不足 1M 时不检查，避免误判内容重复的小文件；0 表示不限制
+         *
+         * @param maxCompressionRatio 最大压缩比
+         * @return {@link UnzipLimits}
+         */
+        public UnzipLimits setMaxCompressionRatio(int maxCompressionRatio) {
+            this.maxCompressionRatio = maxCompressionRatio;
+            return this;
+        }
+    }
+
+    /**
+     * 在解压过程中检查 {@link UnzipLimits}，可以被多个解压线程共用
+     */
+    private static class UnzipGuard {
+        // 解压后小于此字节数的条目不检查压缩比
+        private static final long RATIO_CHECK_THRESHOLD = 1024 * 1024;
+
+        private final UnzipLimits limits;
+        private final AtomicLong totalBytes = new AtomicLong();
+
+        UnzipGuard(UnzipLimits limits) {
+            this.limits = limits;
+        }
+
+        void checkEntries(int count) throws ZipException {
+            if (count > limits.maxEntries) {
+                throw new ZipException("too many entries, limit: " + limits.maxEntries);
+            }
+        }
+
+        /**
+         * @param written 条目已解压的字节数
+         * @param len     本次读取的字节数
+         */
+        void checkRead(ZipEntry entry, long written, long len) throws ZipException {
+            if (totalBytes.addAndGet(len) > limits.maxTotalBytes) {
+                throw new ZipException("total size exceeds limit: " + limits.maxTotalBytes);
+            }
+            long compressedSize = entry.getCompressedSize();
+            if (limits.maxCompressionRatio > 0 && compressedSize >= 0 && written > RATIO_CHECK_THRESHOLD
+                    && written > compressedSize * limits.maxCompressionRatio) {
+                throw new ZipException("compression ratio exceeds limit: " + entry.getName());
+            }
+        }
+    }
+
+    /**
+     * 解压进度的监听
+     */
+    public interface OnUnzipProgressListener {
+        /**
+         * 一个条目解压完成
+         *
+         * @param file      解压出的文件或文件夹
+         * @param completed 已解压的条目数
+         * @param total     总条目数
+         */
+        void onProgress(File file, int completed, int total);
+    }
+
+    /**
+     * 将多个输入流压缩到输出流中，不需要写入临时文件
+     *
+     * @param sources 条目路径与输入流，按迭代的顺序写入，写完后关闭输入流
+     * @param os      输出流，写完后不关闭
+     * @param policy  按条目选择压缩级别，为 null 时使用 {@link #DEFAULT_LEVEL_POLICY}
+     * @throws IOException IO 错误时抛出
+     */
+    public static void zipStreams(Map<String, ? extends InputStream> sources, OutputStream os,
+                                  CompressLevelPolicy policy) throws IOException {
+        if (sources == null || os == null) return;
+        if (policy == null) policy = DEFAULT_LEVEL_POLICY;
+        // 关闭 zos 以释放 Deflater，但不关闭调用方的输出流
+        ZipOutputStream zos = new ZipOutputStream(new NonClosingOutputStream(os));
+        try {
+            byte buffer[] = new byte[BUFFER_LEN];
+            for (Map.Entry<String, ? extends InputStream> source : sources.entrySet()) {
+                InputStream is = source.getValue();
+                // 数据的大小和校验值事先未知，无法使用 STORED，不压缩的条目使用 0 级压缩
+                int level = policy.getLevel(source.getKey());
+                zos.setLevel(level == LEVEL_STORED ? Deflater.NO_COMPRESSION : level);
+                zos.putNextEntry(new ZipEntry(source.getKey()));
+                if (is != null) {
+                    int len;
+                    while ((len = is.read(buffer)) != -1) {
+                        zos.write(buffer, 0, len);
+                    }
+                }
+                zos.closeEntry();
+            }
+            zos.finish();
+            zos.flush();
+        } finally {
             try {
-                in = new BufferedInputStream(zf.getInputStream(entry));
-                out = new BufferedOutputStream(new FileOutputStream(file));
-                byte buffer[] = new byte[BUFFER_LEN];
-                int len;
-                while ((len = in.read(buffer)) != -1) {
-                    out.write(buffer, 0, len);
+                zos.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            // 无论是否出错都逐个关闭全部输入流，包括还没有写入的
+            for (InputStream is : sources.values()) {
+                if (is != null) {
+                    try {
+                        is.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
                 }
-            } finally {
-                if (in != null) in.close();
-                if (out != null) out.close();
             }
         }
-        return true;
+    }
+
+    /**
+     * 关闭时只刷新、不关闭被包装的输出流
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            // FilterOutputStream 默认逐个字节写入
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * 从输入流中依次读取压缩文件的条目，不需要写入临时文件
+     *
+     * @param is       压缩文件的输入流，读完后不关闭
+     * @param listener 条目的回调
+     * @throws IOException IO 错误时抛出
+     */
+    public static void unzipStream(InputStream is, OnZipEntryListener listener) throws IOException {
+        unzipStream(is, null, listener);
+    }
+
+    /**
+     * 从输入流中依次读取压缩文件的条目，并限制读取的大小和数量
+     * <p>
+     * 流中的条目事先不知道压缩后的大小，只有在条目头中写明时才检查压缩比
+     *
+     * @param is       压缩文件的输入流，读完后不关闭
+     * @param limits   读取的限制，为 null 时不限制
+     * @param listener 条目的回调
+     * @throws IOException IO 错误或者超出限制（{@link ZipException}）时抛出
+     */
+    public static void unzipStream(InputStream is, UnzipLimits limits, OnZipEntryListener listener) throws IOException {
+        if (is == null || listener == null) return;
+        UnzipGuard guard = limits == null ? null : new UnzipGuard(limits);
+        ZipInputStream zis = new ZipInputStream(is);
+        ZipEntry entry;
+        int count = 0;
+        while ((entry = zis.getNextEntry()) != null) {
+            if (guard != null) guard.checkEntries(++count);
+            if (!listener.onEntry(entry, new EntryInputStream(zis, entry, guard))) {
+                break;
+            }
+            zis.closeEntry();
+        }
+    }
+
+    /**
+     * 压缩文件条目的回调
+     */
+    public interface OnZipEntryListener {
+        /**
+         * 读取到一个条目
+         *
+         * @param entry 条目
+         * @param in    条目的数据，只在回调中有效，不需要关闭
+         * @return {@code true}: 继续读取<br>{@code false}: 停止读取
+         * @throws IOException IO 错误时抛出
+         */
+        boolean onEntry(ZipEntry entry, InputStream in) throws IOException;
+    }
+
+    /**
+     * 当前条目的输入流，关闭时不关闭 ZipInputStream，读取时检查 {@link UnzipLimits}
+     */
+    private static class EntryInputStream extends FilterInputStream {
+        private final ZipEntry entry;
+        private final UnzipGuard guard;
+        private long read;
+
+        EntryInputStream(ZipInputStream in, ZipEntry entry, UnzipGuard guard) {
+            super(in);
+            this.entry = entry;
+            this.guard = guard;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) onRead(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) onRead(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) onRead(skipped);
+            return skipped;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private void onRead(long len) throws ZipException {
+            read += len;
+            if (guard != null) guard.checkRead(entry, read, len);
+        }
     }
 
     /**
@@ -286,6 +928,282 @@ public final class ZipUtil {
         return comments;
     }
 
+    /**
+     * 按文件选择压缩级别
+     */
+    public interface CompressLevelPolicy {
+        /**
+         * 获取压缩级别
+         *
+         * @param entryName 文件在压缩文件中的路径
+         * @return {@link Deflater} 的压缩级别，或者 {@link #LEVEL_STORED} 表示不压缩
+         */
+        int getLevel(String entryName);
+    }
+
+    /**
+     * 不压缩，直接存储
+     */
+    public static final int LEVEL_STORED = -2;
+
+    /**
+     * 默认的压缩级别：已经压缩过的图片、音视频以及压缩包直接存储，其他文件使用默认级别压缩
+     */
+    public static final CompressLevelPolicy DEFAULT_LEVEL_POLICY = new CompressLevelPolicy() {
+        @Override
+        public int getLevel(String entryName) {
+            int dot = entryName.lastIndexOf('.');
+            if (dot >= 0 && STORED_EXTENSIONS.contains(entryName.substring(dot + 1).toLowerCase(Locale.US))) {
+                return LEVEL_STORED;
+            }
+            return Deflater.DEFAULT_COMPRESSION;
+        }
+    };
+
+    private static final Set<String> STORED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "jpg", "jpeg", "png", "gif", "webp", "mp3", "mp4", "m4a", "aac", "ogg", "3gp", "mkv", "webm",
+            "zip", "apk", "jar", "gz", "7z", "rar"));
+
+    // 在内存中压缩的文件的最大字节数，超过时在写入时直接压缩
+    private static final long MAX_BUFFERED_ENTRY = 4 * 1024 * 1024;
+
+    /**
+     * 待压缩的文件
+     */
+    private static class ZipSource {
+        final String name;
+        final File file;
+        final String comment;
+
+        ZipSource(String name, File file, String comment) {
+            this.name = name;
+            this.file = file;
+            this.comment = comment;
+        }
+    }
+
+    /**
+     * 已经压缩好等待写入的条目
+     */
+    private static class PreparedEntry {
+        final ZipSource source;
+        final int level;
+        int method;
+        long crc;
+        long size;
+        long compressedSize;
+        // 压缩后的数据，为 null 时在写入时读取文件
+        byte[] data;
+        // 是否在写入时压缩，此时校验值和大小写在数据之后
+        boolean streamed;
+
+        PreparedEntry(ZipSource source, int level) {
+            this.source = source;
+            this.level = level;
+        }
+    }
+
+    /**
+     * 按 zip 格式写入已经压缩好的条目
+     * <p>
+     * ZipOutputStream 只能写入未压缩的数据，无法写入在其他线程中压缩好的数据，所以直接按格式写入本地文件头、数据和中央目录
+     */
+    private static class ZipStreamWriter {
+        private static final int LOCAL_HEADER_SIG = 0x04034b50;
+        private static final int DATA_DESCRIPTOR_SIG = 0x08074b50;
+        private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+        private static final int END_SIG = 0x06054b50;
+        private static final int VERSION = 20;
+        // 文件名使用 UTF-8 编码
+        private static final int FLAG_UTF8 = 0x800;
+        // 校验值和大小写在数据之后
+        private static final int FLAG_DATA_DESCRIPTOR = 0x8;
+        private static final long MAX_SIZE = 0xFFFFFFFFL;
+
+        private final OutputStream out;
+        private final ByteArrayOutputStream central = new ByteArrayOutputStream();
+        private final byte[] buffer = new byte[BUFFER_LEN];
+        private long written;
+        private int count;
+
+        ZipStreamWriter(OutputStream out) {
+            this.out = new BufferedOutputStream(out, BUFFER_LEN * 8);
+        }
+
+        void write(PreparedEntry entry) throws IOException {
+            if (++count > 0xFFFF) {
+                throw new IOException("too many entries for zip without Zip64");
+            }
+            byte[] name = entry.source.name.getBytes("UTF-8");
+            long offset = written;
+            int flags = FLAG_UTF8 | (entry.streamed ? FLAG_DATA_DESCRIPTOR : 0);
+            int dosTime = toDosTime(entry.source.file.lastModified());
+            writeInt(LOCAL_HEADER_SIG);
+            writeShort(VERSION);
+            writeShort(flags);
+            writeShort(entry.method);
+            writeInt(dosTime);
+            writeInt(entry.streamed ? 0 : entry.crc);
+            writeInt(entry.streamed ? 0 : entry.compressedSize);
+            writeInt(entry.streamed ? 0 : entry.size);
+            writeShort(name.length);
+            writeShort(0);
+            writeBytes(name, 0, name.length);
+            if (entry.data != null) {
+                writeBytes(entry.data, 0, entry.data.length);
+            } else if (entry.streamed) {
+                deflate(entry);
+                writeInt(DATA_DESCRIPTOR_SIG);
+                writeInt(entry.crc);
+                writeInt(entry.compressedSize);
+                writeInt(entry.size);
+            } else if (entry.size > 0) {
+                copyStored(entry);
+            }
+            if (written > MAX_SIZE) {
+                throw new IOException("zip file too large without Zip64");
+            }
+            byte[] comment = TextUtils.isEmpty(entry.source.comment) ? new byte[0] : entry.source.comment.getBytes("UTF-8");
+            writeInt(central, CENTRAL_HEADER_SIG);
+            writeShort(central, VERSION);
+            writeShort(central, VERSION);
+            writeShort(central, flags);
+            writeShort(central, entry.method);
+            writeInt(central, dosTime);
+            writeInt(central, entry.crc);
+            writeInt(central, entry.compressedSize);
+            writeInt(central, entry.size);
+            writeShort(central, name.length);
+            writeShort(central, 0);
+            writeShort(central, comment.length);
+            writeShort(central, 0);
+            writeShort(central, 0);
+            // MS-DOS 的文件夹属性
+            writeInt(central, entry.source.name.endsWith("/") ? 0x10 : 0);
+            writeInt(central, offset);
+            central.write(name, 0, name.length);
+            central.write(comment, 0, comment.length);
+        }
+
+        /**
+         * 写入中央目录，并刷新输出流（不关闭）
+         */
+        void finish() throws IOException {
+            long offset = written;
+            byte[] directory = central.toByteArray();
+            writeBytes(directory, 0, directory.length);
+            writeInt(END_SIG);
+            writeShort(0);
+            writeShort(0);
+            writeShort(count);
+            writeShort(count);
+            writeInt(directory.length);
+            writeInt(offset);
+            writeShort(0);
+            out.flush();
+        }
+
+        private void deflate(PreparedEntry entry) throws IOException {
+            CRC32 crc = new CRC32();
+            Deflater deflater = new Deflater(entry.level, true);
+            InputStream is = null;
+            try {
+                is = new FileInputStream(entry.source.file);
+                OutputStream counter = new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        writeBytes(new byte[]{(byte) b}, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        writeBytes(b, off, len);
+                    }
+                };
+                long start = written;
+                DeflaterOutputStream dos = new DeflaterOutputStream(counter, deflater, BUFFER_LEN);
+                int len;
+                while ((len = is.read(buffer)) != -1) {
+                    crc.update(buffer, 0, len);
+                    dos.write(buffer, 0, len);
+                    entry.size += len;
+                }
+                dos.finish();
+                entry.compressedSize = written - start;
+                entry.crc = crc.getValue();
+            } finally {
+                deflater.end();
+                if (is != null) is.close();
+            }
+            if (entry.size > MAX_SIZE) {
+                throw new IOException("entry too large without Zip64: " + entry.source.name);
+            }
+        }
+
+        private void copyStored(PreparedEntry entry) throws IOException {
+            InputStream is = null;
+            long copied = 0;
+            try {
+                is = new FileInputStream(entry.source.file);
+                int len;
+                while (copied < entry.size && (len = is.read(buffer, 0, (int) Math.min(buffer.length, entry.size - copied))) != -1) {
+                    writeBytes(buffer, 0, len);
+                    copied += len;
+                }
+            } finally {
+                if (is != null) is.close();
+            }
+            if (copied != entry.size) {
+                throw new IOException("file changed while zipping: " + entry.source.file);
+            }
+        }
+
+        private void writeBytes(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            written += len;
+        }
+
+        private void writeShort(int v) throws IOException {
+            out.write(v & 0xff);
+            out.write((v >>> 8) & 0xff);
+            written += 2;
+        }
+
+        private void writeInt(long v) throws IOException {
+            out.write((int) (v & 0xff));
+            out.write((int) ((v >>> 8) & 0xff));
+            out.write((int) ((v >>> 16) & 0xff));
+            out.write((int) ((v >>> 24) & 0xff));
+            written += 4;
+        }
+
+        private static void writeShort(ByteArrayOutputStream out, int v) {
+            out.write(v & 0xff);
+            out.write((v >>> 8) & 0xff);
+        }
+
+        private static void writeInt(ByteArrayOutputStream out, long v) {
+            out.write((int) (v & 0xff));
+            out.write((int) ((v >>> 8) & 0xff));
+            out.write((int) ((v >>> 16) & 0xff));
+            out.write((int) ((v >>> 24) & 0xff));
+        }
+
+        /**
+         * 转换为 MS-DOS 格式的时间，低 16 位为时间，高 16 位为日期
+         */
+        private static int toDosTime(long time) {
+            Calendar c = Calendar.getInstance();
+            c.setTimeInMillis(time);
+            int year = c.get(Calendar.YEAR);
+            if (year < 1980) {
+                return (1 << 21) | (1 << 16);
+            }
+            return (year - 1980) << 25 | (c.get(Calendar.MONTH) + 1) << 21 | c.get(Calendar.DAY_OF_MONTH) << 16
+                    | c.get(Calendar.HOUR_OF_DAY) << 11 | c.get(Calendar.MINUTE) << 5 | c.get(Calendar.SECOND) >> 1;
+        }
+    }
+
     private static boolean createOrExistsDir(File file) {
         return file != null && (file.exists() ? file.isDirectory() : file.mkdirs());
     }
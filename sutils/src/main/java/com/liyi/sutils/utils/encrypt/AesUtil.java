@@ -23,7 +23,6 @@ import javax.crypto.spec.SecretKeySpec;
  * 参考链接：http://www.cnblogs.com/whoislcj/p/5473030.html
  */
 public final class AesUtil {
-    private final static String HEX = "0123456789ABCDEF";
     /* AES 是加密方式 CBC 是工作模式 PKCS5Padding 是填充模式 */
     private static final String CBC_PKCS5_PADDING = "AES/CBC/PKCS5Padding";
     /* AES 加密 */
@@ -199,16 +198,6 @@ public final class AesUtil {
      * @return
      */
     public static String toHex(byte[] buf) {
-        if (buf == null)
-            return "";
-        StringBuffer result = new StringBuffer(2 * buf.length);
-        for (int i = 0; i < buf.length; i++) {
-            appendHex(result, buf[i]);
-        }
-        return result.toString();
-    }
-
-    private static void appendHex(StringBuffer sb, byte b) {
-        sb.append(HEX.charAt((b >> 4) & 0x0f)).append(HEX.charAt(b & 0x0f));
+        return HexUtil.encode(buf, true);
     }
 }
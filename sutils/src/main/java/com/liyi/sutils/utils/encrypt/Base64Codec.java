@@ -0,0 +1,296 @@
+package com.liyi.sutils.utils.encrypt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Base64 编解码
+ * <p>
+ * 按 3 字节 / 4 字符一组查表转换，直接写入预先分配好的数组；默认格式与 {@link android.util.Base64#DEFAULT} 一致，
+ * 每 76 个字符换行（'\n'），最后一行也以换行结尾
+ */
+public final class Base64Codec {
+    /**
+     * 默认：标准字母表，有填充，每 76 个字符换行
+     */
+    public static final int DEFAULT = 0;
+    /**
+     * 不在末尾添加填充的 '='
+     */
+    public static final int NO_PADDING = 1;
+    /**
+     * 不换行
+     */
+    public static final int NO_WRAP = 2;
+    /**
+     * 使用 URL 和文件名安全的字母表，'-' 和 '_' 代替 '+' 和 '/'
+     */
+    public static final int URL_SAFE = 8;
+
+    // 每行的字节数，编码后为 76 个字符
+    private static final int LINE_BYTES = 57;
+    // 流式编码时每次读取的字节数，为整数行
+    private static final int STREAM_CHUNK = LINE_BYTES * 1024;
+
+    private static final byte[] ENCODE = table("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/");
+    private static final byte[] ENCODE_URL_SAFE = table("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_");
+
+    static final int SKIP = -1;
+    static final int INVALID = -2;
+    // 字符到 6 位值的映射，同时接受两种字母表；空白字符为 SKIP，其他字符（包括 '='）为 INVALID
+    static final int[] DECODE = new int[256];
+
+    static {
+        Arrays.fill(DECODE, INVALID);
+        for (int i = 0; i < 64; i++) {
+            DECODE[ENCODE[i]] = i;
+            DECODE[ENCODE_URL_SAFE[i]] = i;
+        }
+        DECODE[' '] = SKIP;
+        DECODE['\t'] = SKIP;
+        DECODE['\r'] = SKIP;
+        DECODE['\n'] = SKIP;
+    }
+
+    private Base64Codec() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 计算编码后的字节数
+     *
+     * @param len   数据的字节数
+     * @param flags 编码选项
+     * @return 编码后的字节数
+     */
+    public static long encodedLength(long len, int flags) {
+        long groups = (len + 2) / 3;
+        long length;
+        if ((flags & NO_PADDING) == 0) {
+            length = groups * 4;
+        } else {
+            int tail = (int) (len % 3);
+            length = len / 3 * 4 + (tail == 0 ? 0 : tail + 1);
+        }
+        if ((flags & NO_WRAP) == 0) {
+            length += (len + LINE_BYTES - 1) / LINE_BYTES;
+        }
+        return length;
+    }
+
+    /**
+     * 编码
+     *
+     * @param data  数据
+     * @param flags 编码选项
+     * @return 编码后的数据
+     */
+    public static byte[] encode(byte[] data, int flags) {
+        return encode(data, 0, data.length, flags);
+    }
+
+    /**
+     * 编码数组中的一段数据
+     *
+     * @param data   数据
+     * @param offset 起始位置
+     * @param len    字节数
+     * @param flags  编码选项
+     * @return 编码后的数据
+     */
+    public static byte[] encode(byte[] data, int offset, int len, int flags) {
+        byte[] out = new byte[(int) encodedLength(len, flags)];
+        encode(data, offset, len, out, 0, flags);
+        return out;
+    }
+
+    /**
+     * 编码为字符串
+     *
+     * @param data  数据
+     * @param flags 编码选项
+     * @return 编码后的字符串
+     */
+    public static String encodeToString(byte[] data, int flags) {
+        byte[] out = encode(data, flags);
+        char[] chars = new char[out.length];
+        for (int i = 0; i < out.length; i++) {
+            chars[i] = (char) out[i];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 流式编码，每次只读取一块数据，不需要把全部数据读入内存
+     *
+     * @param in    数据的输入流，不关闭
+     * @param out   编码后的输出流，不关闭
+     * @param flags 编码选项
+     * @return 读取的字节数
+     * @throws IOException IO 错误时抛出
+     */
+    public static long encode(InputStream in, OutputStream out, int flags) throws IOException {
+        byte[] chunk = new byte[STREAM_CHUNK];
+        byte[] encoded = new byte[(int) encodedLength(STREAM_CHUNK, flags)];
+        long total = 0;
+        int len;
+        // 除最后一块外每块都读满，保证每块都是整数行、整数组，块与块之间不需要填充
+        while ((len = readFully(in, chunk)) > 0) {
+            out.write(encoded, 0, encode(chunk, 0, len, encoded, 0, flags));
+            total += len;
+            if (len < chunk.length) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 解码，忽略空白字符，遇到 '=' 时结束；两种字母表都可以解码，不要求填充
+     *
+     * @param data 编码后的数据
+     * @return 解码后的数据
+     * @throws IllegalArgumentException 包含非 Base64 字符时抛出
+     */
+    public static byte[] decode(byte[] data) {
+        return decode(data, 0, data.length);
+    }
+
+    /**
+     * 解码数组中的一段数据
+     *
+     * @param data   编码后的数据
+     * @param offset 起始位置
+     * @param len    字节数
+     * @return 解码后的数据
+     * @throws IllegalArgumentException 包含非 Base64 字符时抛出
+     */
+    public static byte[] decode(byte[] data, int offset, int len) {
+        byte[] out = new byte[len / 4 * 3 + 2];
+        int op = 0;
+        int bits = 0;
+        int count = 0;
+        for (int i = offset, end = offset + len; i < end; i++) {
+            int c = data[i] & 0xff;
+            int v = DECODE[c];
+            if (v >= 0) {
+                bits = bits << 6 | v;
+                if (++count == 4) {
+                    out[op++] = (byte) (bits >> 16);
+                    out[op++] = (byte) (bits >> 8);
+                    out[op++] = (byte) bits;
+                    bits = 0;
+                    count = 0;
+                }
+            } else if (c == '=') {
+                break;
+            } else if (v == INVALID) {
+                throw new IllegalArgumentException("illegal base64 char at " + (i - offset) + ": " + c);
+            }
+        }
+        // 不足一组的剩余字符，只有 1 个字符时不足一个字节，忽略
+        if (count == 2) {
+            out[op++] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            out[op++] = (byte) (bits >> 10);
+            out[op++] = (byte) (bits >> 2);
+        }
+        return op == out.length ? out : Arrays.copyOf(out, op);
+    }
+
+    /**
+     * 解码字符串
+     *
+     * @param str 编码后的字符串
+     * @return 解码后的数据
+     * @throws IllegalArgumentException 包含非 Base64 字符时抛出
+     */
+    public static byte[] decode(String str) {
+        int len = str.length();
+        byte[] data = new byte[len];
+        for (int i = 0; i < len; i++) {
+            char c = str.charAt(i);
+            // 非 ASCII 字符映射为非法字符
+            data[i] = (byte) (c < 0x80 ? c : 0xff);
+        }
+        return decode(data, 0, len);
+    }
+
+    /**
+     * 编码到指定的数组
+     *
+     * @return 写入后 out 中的位置
+     */
+    private static int encode(byte[] data, int offset, int len, byte[] out, int op, int flags) {
+        boolean wrap = (flags & NO_WRAP) == 0;
+        boolean urlSafe = (flags & URL_SAFE) != 0;
+        int full = len - len % 3;
+        int end = offset + full;
+        int i = offset;
+        if (wrap) {
+            for (; end - i >= LINE_BYTES; i += LINE_BYTES) {
+                op = encodeGroups(data, i, LINE_BYTES, out, op, urlSafe);
+                out[op++] = '\n';
+            }
+        }
+        op = encodeGroups(data, i, end - i, out, op, urlSafe);
+        int tail = len - full;
+        if (tail > 0) {
+            byte[] table = urlSafe ? ENCODE_URL_SAFE : ENCODE;
+            int bits = (data[end] & 0xff) << 16 | (tail == 2 ? (data[end + 1] & 0xff) << 8 : 0);
+            out[op++] = table[bits >>> 18];
+            out[op++] = table[(bits >>> 12) & 0x3f];
+            if (tail == 2) {
+                out[op++] = table[(bits >>> 6) & 0x3f];
+            }
+            if ((flags & NO_PADDING) == 0) {
+                out[op++] = '=';
+                if (tail == 1) {
+                    out[op++] = '=';
+                }
+            }
+        }
+        // 最后一行不满时也以换行结尾
+        if (wrap && len % LINE_BYTES != 0) {
+            out[op++] = '\n';
+        }
+        return op;
+    }
+
+    /**
+     * 编码完整的分组，不换行、不填充
+     *
+     * @param len 字节数，必须是 3 的倍数
+     * @return 写入后 out 中的位置
+     */
+    static int encodeGroups(byte[] data, int offset, int len, byte[] out, int op, boolean urlSafe) {
+        byte[] table = urlSafe ? ENCODE_URL_SAFE : ENCODE;
+        for (int i = offset, end = offset + len; i < end; i += 3) {
+            int bits = (data[i] & 0xff) << 16 | (data[i + 1] & 0xff) << 8 | (data[i + 2] & 0xff);
+            out[op++] = table[bits >>> 18];
+            out[op++] = table[(bits >>> 12) & 0x3f];
+            out[op++] = table[(bits >>> 6) & 0x3f];
+            out[op++] = table[bits & 0x3f];
+        }
+        return op;
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int read = 0;
+        int len;
+        while (read < buffer.length && (len = in.read(buffer, read, buffer.length - read)) != -1) {
+            read += len;
+        }
+        return read;
+    }
+
+    private static byte[] table(String chars) {
+        byte[] table = new byte[chars.length()];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (byte) chars.charAt(i);
+        }
+        return table;
+    }
+}
@@ -2,8 +2,6 @@ package com.liyi.sutils.utils.encrypt;
 
 import android.text.TextUtils;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -13,20 +11,20 @@ import java.io.InputStream;
  */
 public class Base64Decoder extends FilterInputStream {
 
-    private static final char[] chars = {'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u',
-            'v', 'w', 'x', 'y', 'z', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '+', '/'};
-
-    // A mapping between char values and six-bit integers
-    private static final int[] ints = new int[128];
-
-    static {
-        for (int i = 0; i < 64; i++) {
-            ints[chars[i]] = i;
-        }
-    }
-
-    private int charCount;
-    private int carryOver;
+    // 当前分组已读取的 6 位值及其个数，每 4 个解码为 3 个字节
+    private int bits;
+    private int count;
+    // 已读到 '=' 或输入流结束
+    private boolean finished;
+    // 已解码但还没有返回的字节，调用方的数组放不下一整组时使用
+    private final byte[] pending = new byte[3];
+    private int pendingPosition;
+    private int pendingLimit;
+    private final byte[] single = new byte[1];
+    // 从输入流中批量读取的字符，避免每个字符都调用一次 in.read()
+    private final byte[] buffer = new byte[4 * 1024];
+    private int position;
+    private int limit;
 
     /***
      * Constructs a new Base64 decoder that reads input from the given
@@ -35,7 +33,7 @@ public class Base64Decoder extends FilterInputStream {
      * @param in
      *            the input stream
      */
-    private Base64Decoder(InputStream in) {
+    Base64Decoder(InputStream in) {
         super(in);
     }
 
@@ -49,52 +47,50 @@ public class Base64Decoder extends FilterInputStream {
      *                if an I/O error occurs
      */
     public int read() throws IOException {
-        // Read the next non-whitespace character
-        int x;
-        do {
-            x = in.read();
-            if (x == -1) {
-                return -1;
-            }
-        } while (Character.isWhitespace((char) x));
-        charCount++;
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
 
-        // The '=' sign is just padding
-        if (x == '=') {
-            return -1; // effective end of stream
+    /**
+     * 内部缓冲区读完时从输入流中批量读取
+     *
+     * @return 是否读到了数据
+     */
+    private boolean fill() throws IOException {
+        int len;
+        do {
+            len = in.read(buffer, 0, buffer.length);
+        } while (len == 0);
+        if (len == -1) {
+            return false;
         }
+        position = 0;
+        limit = len;
+        return true;
+    }
 
-        // Convert from raw form to 6-bit form
-        x = ints[x];
-
-        // Calculate which character we're decoding now
-        int mode = (charCount - 1) % 4;
-
-        // First char save all six bits, go for another
-        if (mode == 0) {
-            carryOver = x & 63;
-            return read();
-        }
-        // Second char use previous six bits and first two new bits,
-        // save last four bits
-        else if (mode == 1) {
-            int decoded = ((carryOver << 2) + (x >> 4)) & 255;
-            carryOver = x & 15;
-            return decoded;
-        }
-        // Third char use previous four bits and first four new bits,
-        // save last two bits
-        else if (mode == 2) {
-            int decoded = ((carryOver << 4) + (x >> 2)) & 255;
-            carryOver = x & 3;
-            return decoded;
-        }
-        // Fourth char use previous two bits and all six new bits
-        else if (mode == 3) {
-            int decoded = ((carryOver << 6) + x) & 255;
-            return decoded;
+    /**
+     * 读到 '=' 或输入流结束，不足一组的剩余字符解码到 pending 中，只有 1 个字符时不足一个字节，忽略
+     */
+    private void finish() {
+        finished = true;
+        pendingPosition = 0;
+        pendingLimit = 0;
+        if (count == 2) {
+            pending[pendingLimit++] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            pending[pendingLimit++] = (byte) (bits >> 10);
+            pending[pendingLimit++] = (byte) (bits >> 2);
         }
-        return -1; // can't actually reach this line
+        bits = 0;
+        count = 0;
+    }
+
+    /**
+     * 内部有缓冲区，不支持 mark/reset
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
     }
 
     /***
@@ -113,22 +109,83 @@ public class Base64Decoder extends FilterInputStream {
      *                if an I/O error occurs
      */
     public int read(byte[] buf, int off, int len) throws IOException {
-        if (buf.length < (len + off - 1)) {
+        if (off < 0 || len < 0 || len > buf.length - off) {
             throw new IOException("The input buffer is too small: " + len + " bytes requested starting at offset " + off + " while the buffer " + " is only " + buf.length + " bytes long.");
         }
-
-        // This could of course be optimized
-        int i;
-        for (i = 0; i < len; i++) {
-            int x = read();
-            if (x == -1 && i == 0) { // an immediate -1 returns -1
-                return -1;
-            } else if (x == -1) { // a later -1 returns the chars read so far
+        if (len == 0) {
+            return 0;
+        }
+        int op = off;
+        int end = off + len;
+        while (op < end) {
+            // 先返回上次剩余的字节
+            if (pendingPosition < pendingLimit) {
+                int n = Math.min(pendingLimit - pendingPosition, end - op);
+                System.arraycopy(pending, pendingPosition, buf, op, n);
+                pendingPosition += n;
+                op += n;
+                continue;
+            }
+            if (finished) {
                 break;
             }
-            buf[off + i] = (byte) x;
+            if (position == limit) {
+                // 已经读到数据时直接返回，不再等待输入流
+                if (op > off) {
+                    break;
+                }
+                if (!fill()) {
+                    finish();
+                    continue;
+                }
+            }
+            // 在内部缓冲区中查表解码，每满 4 个字符直接写入 buf
+            int[] decode = Base64Codec.DECODE;
+            byte[] chars = buffer;
+            int p = position;
+            int b = bits;
+            int c = count;
+            boolean padding = false;
+            while (p < limit && op < end) {
+                int x = chars[p++] & 0xff;
+                int v = decode[x];
+                if (v >= 0) {
+                    b = b << 6 | v;
+                    if (++c == 4) {
+                        if (end - op >= 3) {
+                            buf[op++] = (byte) (b >> 16);
+                            buf[op++] = (byte) (b >> 8);
+                            buf[op++] = (byte) b;
+                        } else {
+                            pending[0] = (byte) (b >> 16);
+                            pending[1] = (byte) (b >> 8);
+                            pending[2] = (byte) b;
+                            pendingPosition = 0;
+                            pendingLimit = 3;
+                        }
+                        b = 0;
+                        c = 0;
+                        if (pendingLimit > pendingPosition) {
+                            break;
+                        }
+                    }
+                } else if (x == '=') {
+                    // The '=' sign is just padding, effective end of stream
+                    padding = true;
+                    break;
+                } else if (v == Base64Codec.INVALID) {
+                    position = p;
+                    throw new IOException("Illegal base64 character: " + x);
+                }
+            }
+            position = p;
+            bits = b;
+            count = c;
+            if (padding) {
+                finish();
+            }
         }
-        return i;
+        return op == off ? -1 : op - off;
     }
 
     /***
@@ -156,29 +213,6 @@ public class Base64Decoder extends FilterInputStream {
      * @return the decoded form of the encoded string
      */
     public static byte[] decodeToBytes(String encoded) {
-        byte[] bytes = encoded.getBytes();
-        Base64Decoder in = new Base64Decoder(new ByteArrayInputStream(bytes));
-        ByteArrayOutputStream out = new ByteArrayOutputStream((int) (bytes.length * 0.75));
-        try {
-            byte[] buf = new byte[4 * 1024]; // 4K buffer
-            int bytesRead;
-            while ((bytesRead = in.read(buf)) != -1) {
-                out.write(buf, 0, bytesRead);
-            }
-            return out.toByteArray();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } finally {
-            try {
-                in.close();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-            try {
-                out.close();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }
+        return Base64Codec.decode(encoded);
     }
 }
\ No newline at end of file
@@ -13,8 +13,13 @@ public class Base64Encoder extends FilterOutputStream {
     private static final char[] chars = {'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u',
             'v', 'w', 'x', 'y', 'z', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '+', '/'};
 
-    private int charCount;
+    // 批量编码时每次处理的字节数，为整数行
+    private static final int BLOCK_BYTES = 57 * 64;
+
+    private long charCount;
     private int carryOver;
+    // 批量编码的输出缓冲区，第一次批量写入时创建
+    private byte[] block;
     // 是否每76字节换行
     private boolean isWrapBreak = true;
 
@@ -102,9 +107,31 @@ public class Base64Encoder extends FilterOutputStream {
      *                if an I/O error occurs
      */
     public void write(byte[] buf, int off, int len) throws IOException {
-        // This could of course be optimized
-        for (int i = 0; i < len; i++) {
-            write(buf[off + i]);
+        // 先补齐上次剩余的不足 3 字节的分组
+        while (len > 0 && charCount % 3 != 0) {
+            write(buf[off++]);
+            len--;
+        }
+        // 完整的分组批量编码，每次最多编码到行尾
+        while (len >= 3) {
+            int n = Math.min(len - len % 3, BLOCK_BYTES);
+            if (isWrapBreak) {
+                n = Math.min(n, 57 - (int) (charCount % 57));
+            }
+            if (block == null) {
+                block = new byte[BLOCK_BYTES / 3 * 4];
+            }
+            out.write(block, 0, Base64Codec.encodeGroups(buf, off, n, block, 0, false));
+            charCount += n;
+            off += n;
+            len -= n;
+            if (isWrapBreak && charCount % 57 == 0) {
+                out.write('\n');
+            }
+        }
+        while (len > 0) {
+            write(buf[off++]);
+            len--;
         }
     }
 
@@ -3,10 +3,14 @@ package com.liyi.sutils.utils.encrypt;
 import android.text.TextUtils;
 import android.util.Base64;
 
+import com.liyi.sutils.utils.log.LogUtil;
+
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Base64 加密工具类
@@ -14,6 +18,9 @@ import java.io.IOException;
  * 参考链接：http://www.cnblogs.com/whoislcj/p/5887859.html
  */
 public final class Base64Util {
+    private static final String TAG = Base64Util.class.getSimpleName();
+    // encrypt(File) 返回的字符串最多容纳的字符数，留出数组头部的空间
+    private static final long MAX_STRING_LENGTH = Integer.MAX_VALUE - 8;
 
     private Base64Util() {
         throw new UnsupportedOperationException("cannot be instantiated");
@@ -47,22 +54,62 @@ public final class Base64Util {
 
     /**
      * base64 加密文件
+     * <p>
+     * 分块读取文件并编码，不需要把整个文件读入内存；编码结果需要整体放入一个字符串，超过约 1.5G 的文件无法编码，
+     * 请使用 {@link #encrypt(File, OutputStream, int)} 直接写入输出流
      *
      * @param file 需要加密的文件
-     * @return 解密后的数据
+     * @return 解密后的数据，文件过大时返回空字符串
      */
     public static String encrypt(File file) {
+        if (file == null || !file.isFile()) {
+            return "";
+        }
+        long encodedLength = Base64Codec.encodedLength(file.length(), Base64Codec.DEFAULT);
+        if (encodedLength > MAX_STRING_LENGTH) {
+            LogUtil.e(TAG, "file too large to encode into a string ========> " + file.length()
+                    + " byte, use encrypt(File, OutputStream, int) instead");
+            return "";
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) encodedLength);
+        if (!encrypt(file, out, Base64Codec.DEFAULT)) {
+            return "";
+        }
+        return out.toString();
+    }
+
+    /**
+     * base64 加密文件，并写入输出流
+     * <p>
+     * 分块读取文件并编码，适合很大的文件
+     *
+     * @param file  需要加密的文件
+     * @param out   输出流，写完后不关闭
+     * @param flags 编码选项，见 {@link Base64Codec#DEFAULT}、{@link Base64Codec#NO_WRAP}、{@link Base64Codec#URL_SAFE} 等
+     * @return {@code true}: 加密成功<br>{@code false}: 加密失败
+     */
+    public static boolean encrypt(File file, OutputStream out, int flags) {
+        if (file == null || out == null) {
+            return false;
+        }
         FileInputStream inputFile = null;
         try {
             inputFile = new FileInputStream(file);
-            byte[] buffer = new byte[(int) file.length()];
-            inputFile.read(buffer);
-            inputFile.close();
-            return Base64.encodeToString(buffer, Base64.DEFAULT);
-        } catch (Exception e) {
+            Base64Codec.encode(inputFile, out, flags);
+            out.flush();
+            return true;
+        } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            if (inputFile != null) {
+                try {
+                    inputFile.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
         }
-        return "";
+        return false;
     }
 
     /**
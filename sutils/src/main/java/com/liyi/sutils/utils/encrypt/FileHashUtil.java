@@ -0,0 +1,204 @@
+package com.liyi.sutils.utils.encrypt;
+
+import com.liyi.sutils.utils.io.CancelSignal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 文件摘要工具类
+ * <p>
+ * 只读取一次文件，同时计算多种摘要（MD5、SHA-1、SHA-256 等），大文件不需要重复读取
+ */
+public final class FileHashUtil {
+    public static final String MD5 = "MD5";
+    public static final String SHA1 = "SHA-1";
+    public static final String SHA256 = "SHA-256";
+
+    // 每次读取的字节数
+    private static final int CHUNK_SIZE = 256 * 1024;
+    // 读取与计算摘要交替使用的缓冲区数量
+    private static final int CHUNK_COUNT = 4;
+
+    private FileHashUtil() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 计算文件的多种摘要
+     *
+     * @param file       文件
+     * @param algorithms 摘要算法，例如 {@link #MD5}、{@link #SHA1}、{@link #SHA256}
+     * @return 算法与小写十六进制摘要，顺序与 algorithms 一致
+     * @throws IOException IO 错误时抛出
+     */
+    public static Map<String, String> hash(File file, String... algorithms) throws IOException {
+        return hash(file, algorithms, null, null);
+    }
+
+    /**
+     * 计算文件的多种摘要
+     * <p>
+     * 读取文件的同时，每种算法在各自的线程中按顺序计算，总耗时取决于最慢的算法而不是所有算法之和
+     *
+     * @param file       文件
+     * @param algorithms 摘要算法，例如 {@link #MD5}、{@link #SHA1}、{@link #SHA256}
+     * @param listener   进度的监听，在调用线程中回调，可以为 null
+     * @param signal     取消信号，可以为 null
+     * @return 算法与小写十六进制摘要，顺序与 algorithms 一致；已取消时返回 null
+     * @throws IOException              IO 错误时抛出
+     * @throws IllegalArgumentException 不支持的算法时抛出
+     */
+    public static Map<String, String> hash(File file, String[] algorithms, OnHashProgressListener listener,
+                                           CancelSignal signal) throws IOException {
+        if (file == null || !file.isFile() || algorithms == null || algorithms.length == 0) {
+            return null;
+        }
+        MessageDigest[] digests = new MessageDigest[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            try {
+                digests[i] = MessageDigest.getInstance(algorithms[i]);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("unsupported algorithm: " + algorithms[i], e);
+            }
+        }
+        boolean completed;
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            if (digests.length == 1) {
+                completed = update(in, file.length(), digests[0], listener, signal);
+            } else {
+                completed = update(in, file.length(), digests, listener, signal);
+            }
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+        if (!completed) {
+            return null;
+        }
+        Map<String, String> result = new LinkedHashMap<String, String>();
+        for (int i = 0; i < algorithms.length; i++) {
+            result.put(algorithms[i], HexUtil.encode(digests[i].digest()));
+        }
+        return result;
+    }
+
+    /**
+     * 只有一种算法时在调用线程中计算
+     */
+    private static boolean update(InputStream in, long total, MessageDigest digest,
+                                  OnHashProgressListener listener, CancelSignal signal) throws IOException {
+        byte buffer[] = new byte[CHUNK_SIZE];
+        long hashed = 0;
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            if (signal != null && signal.isCancelled()) {
+                return false;
+            }
+            digest.update(buffer, 0, len);
+            hashed += len;
+            if (listener != null) {
+                listener.onProgress(hashed, total);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 多种算法时，调用线程负责读取，每种算法使用一个单线程的线程池，保证同一算法按读取顺序计算；
+     * 缓冲区在所有算法都计算完后回收，读取最多领先计算 {@link #CHUNK_COUNT} 个缓冲区
+     */
+    private static boolean update(InputStream in, long total, final MessageDigest[] digests,
+                                  OnHashProgressListener listener, CancelSignal signal) throws IOException {
+        final BlockingQueue<Chunk> free = new ArrayBlockingQueue<Chunk>(CHUNK_COUNT);
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            free.add(new Chunk());
+        }
+        ThreadPoolExecutor[] executors = new ThreadPoolExecutor[digests.length];
+        for (int i = 0; i < digests.length; i++) {
+            executors[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        }
+        boolean completed = false;
+        try {
+            long hashed = 0;
+            while (true) {
+                final Chunk chunk = free.take();
+                int len = in.read(chunk.data);
+                if (len == -1) {
+                    break;
+                }
+                if (signal != null && signal.isCancelled()) {
+                    return false;
+                }
+                chunk.len = len;
+                chunk.pending.set(digests.length);
+                for (int i = 0; i < digests.length; i++) {
+                    final MessageDigest digest = digests[i];
+                    executors[i].execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            digest.update(chunk.data, 0, chunk.len);
+                            if (chunk.pending.decrementAndGet() == 0) {
+                                free.add(chunk);
+                            }
+                        }
+                    });
+                }
+                hashed += len;
+                if (listener != null) {
+                    listener.onProgress(hashed, total);
+                }
+            }
+            for (ThreadPoolExecutor executor : executors) {
+                executor.shutdown();
+            }
+            for (ThreadPoolExecutor executor : executors) {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("hash interrupted");
+        } finally {
+            if (!completed) {
+                for (ThreadPoolExecutor executor : executors) {
+                    executor.shutdownNow();
+                }
+            }
+        }
+        return true;
+    }
+
+    private static class Chunk {
+        final byte[] data = new byte[CHUNK_SIZE];
+        final AtomicInteger pending = new AtomicInteger();
+        int len;
+    }
+
+    /**
+     * 计算摘要进度的监听
+     */
+    public interface OnHashProgressListener {
+        /**
+         * @param hashed 已读取的字节数
+         * @param total  文件的总字节数
+         */
+        void onProgress(long hashed, long total);
+    }
+}
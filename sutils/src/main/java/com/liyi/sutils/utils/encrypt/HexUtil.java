@@ -0,0 +1,117 @@
+package com.liyi.sutils.utils.encrypt;
+
+/**
+ * 十六进制编码工具类
+ * <p>
+ * 通过查表直接写入预先分配好的 char 数组，不产生中间字符串
+ */
+public final class HexUtil {
+    private static final char[] DIGITS_LOWER = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+    private static final char[] DIGITS_UPPER = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+
+    private HexUtil() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 字节数组转小写十六进制字符串
+     *
+     * @param data 字节数组
+     * @return 十六进制字符串
+     */
+    public static String encode(byte[] data) {
+        return encode(data, false);
+    }
+
+    /**
+     * 字节数组转十六进制字符串
+     *
+     * @param data      字节数组
+     * @param upperCase 是否使用大写字母
+     * @return 十六进制字符串
+     */
+    public static String encode(byte[] data, boolean upperCase) {
+        if (data == null) {
+            return "";
+        }
+        return encode(data, 0, data.length, upperCase);
+    }
+
+    /**
+     * 字节数组的一部分转十六进制字符串
+     *
+     * @param data      字节数组
+     * @param offset    起始位置
+     * @param len       字节数
+     * @param upperCase 是否使用大写字母
+     * @return 十六进制字符串
+     */
+    public static String encode(byte[] data, int offset, int len, boolean upperCase) {
+        if (data == null) {
+            return "";
+        }
+        char[] digits = upperCase ? DIGITS_UPPER : DIGITS_LOWER;
+        char[] chars = new char[len * 2];
+        for (int i = 0, j = 0; i < len; i++) {
+            int b = data[offset + i];
+            chars[j++] = digits[(b >> 4) & 0x0f];
+            chars[j++] = digits[b & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 字节数组转用分隔符隔开的十六进制字符串，例如 "AB:CD:EF"
+     *
+     * @param data      字节数组
+     * @param separator 分隔符
+     * @param upperCase 是否使用大写字母
+     * @return 十六进制字符串
+     */
+    public static String encode(byte[] data, char separator, boolean upperCase) {
+        if (data == null || data.length == 0) {
+            return "";
+        }
+        char[] digits = upperCase ? DIGITS_UPPER : DIGITS_LOWER;
+        char[] chars = new char[data.length * 3 - 1];
+        for (int i = 0, j = 0; i < data.length; i++) {
+            if (i > 0) {
+                chars[j++] = separator;
+            }
+            int b = data[i];
+            chars[j++] = digits[(b >> 4) & 0x0f];
+            chars[j++] = digits[b & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 十六进制字符串转字节数组，不区分大小写
+     *
+     * @param hex 十六进制字符串
+     * @return 字节数组
+     * @throws IllegalArgumentException 字符串长度为奇数或者包含非十六进制字符时抛出
+     */
+    public static byte[] decode(String hex) {
+        if (hex == null) {
+            return new byte[0];
+        }
+        int len = hex.length();
+        if ((len & 1) != 0) {
+            throw new IllegalArgumentException("odd hex length: " + len);
+        }
+        byte[] data = new byte[len / 2];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (digit(hex, i * 2) << 4 | digit(hex, i * 2 + 1));
+        }
+        return data;
+    }
+
+    private static int digit(String hex, int index) {
+        int d = Character.digit(hex.charAt(index), 16);
+        if (d < 0) {
+            throw new IllegalArgumentException("illegal hex char at " + index + ": " + hex.charAt(index));
+        }
+        return d;
+    }
+}
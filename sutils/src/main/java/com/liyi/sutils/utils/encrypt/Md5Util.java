@@ -5,10 +5,19 @@ import android.text.TextUtils;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.MappedByteBuffer;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * MD5加密工具类
@@ -16,6 +25,14 @@ import java.security.NoSuchAlgorithmException;
  * 参考链接：http://www.cnblogs.com/whoislcj/p/5885006.html
  */
 public final class Md5Util {
+    /**
+     * encryptTree 默认的分块字节数
+     */
+    public static final int TREE_CHUNK_SIZE = 4 * 1024 * 1024;
+    // encryptByNio、encryptTree 每次读取的字节数
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+    // 每个线程复用一个 MessageDigest，避免每次计算都查找算法提供者
+    private static final ThreadLocal<MessageDigest> MD5 = new ThreadLocal<MessageDigest>();
 
     private Md5Util() {
         throw new UnsupportedOperationException("cannot be instantiated");
@@ -32,17 +49,8 @@ public final class Md5Util {
             return "";
         }
         try {
-            MessageDigest md5 = MessageDigest.getInstance("MD5");
-            byte[] bytes = md5.digest(plaintext.getBytes());
-            String result = "";
-            for (byte b : bytes) {
-                String temp = Integer.toHexString(b & 0xff);
-                if (temp.length() == 1) {
-                    temp = "0" + temp;
-                }
-                result += temp;
-            }
-            return result;
+            byte[] bytes = getMd5().digest(plaintext.getBytes());
+            return HexUtil.encode(bytes);
         } catch (NoSuchAlgorithmException e) {
             e.printStackTrace();
         }
@@ -64,20 +72,13 @@ public final class Md5Util {
         byte buffer[] = new byte[8192];
         int len;
         try {
-            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            MessageDigest md5 = getMd5();
             in = new FileInputStream(file);
             while ((len = in.read(buffer)) != -1) {
                 md5.update(buffer, 0, len);
             }
             byte[] bytes = md5.digest();
-
-            for (byte b : bytes) {
-                String temp = Integer.toHexString(b & 0xff);
-                if (temp.length() == 1) {
-                    temp = "0" + temp;
-                }
-                result += temp;
-            }
+            result = HexUtil.encode(bytes);
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -94,6 +95,8 @@ public final class Md5Util {
 
     /**
      * 采用nio方式进行 MD5 加密
+     * <p>
+     * 通过 FileChannel 读入同一个缓冲区依次计算，不映射文件，支持超过 2G 的文件，也不会占用额外的地址空间
      *
      * @param file 需要加密的文件
      * @return 加密后的数据
@@ -103,17 +106,16 @@ public final class Md5Util {
         FileInputStream in = null;
         try {
             in = new FileInputStream(file);
-            MappedByteBuffer byteBuffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
-            MessageDigest md5 = MessageDigest.getInstance("MD5");
-            md5.update(byteBuffer);
-            byte[] bytes = md5.digest();
-            for (byte b : bytes) {
-                String temp = Integer.toHexString(b & 0xff);
-                if (temp.length() == 1) {
-                    temp = "0" + temp;
-                }
-                result += temp;
+            FileChannel channel = in.getChannel();
+            MessageDigest md5 = getMd5();
+            // 映射的区域只有在 buffer 被回收时才释放，Android 没有提供主动释放的接口，所以复用一个缓冲区读取
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                md5.update(buffer.array(), 0, buffer.position());
+                buffer.clear();
             }
+            byte[] bytes = md5.digest();
+            result = HexUtil.encode(bytes);
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -128,6 +130,99 @@ public final class Md5Util {
         return result;
     }
 
+    /**
+     * 多线程计算文件的分块 MD5 值，分块大小为 {@link #TREE_CHUNK_SIZE}
+     *
+     * @param file 需要加密的文件
+     * @return 加密后的数据
+     * @see #encryptTree(File, int, int)
+     */
+    public static String encryptTree(File file) {
+        return encryptTree(file, TREE_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 多线程计算文件的分块 MD5 值
+     * <p>
+     * 将文件按 chunkSize 分块，多个线程同时计算每一块的 MD5，再对按顺序拼接的各块 MD5（每块 16 字节）计算 MD5 作为结果。
+     * 结果与 {@link #encrypt(File)} 不同，校验双方需要使用相同的分块大小
+     *
+     * @param file        需要加密的文件
+     * @param chunkSize   分块的字节数
+     * @param parallelism 同时计算的线程数
+     * @return 加密后的数据
+     */
+    public static String encryptTree(File file, int chunkSize, int parallelism) {
+        if (file == null || !file.isFile() || chunkSize <= 0) {
+            return "";
+        }
+        String result = "";
+        RandomAccessFile raf = null;
+        ThreadPoolExecutor executor = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            final FileChannel channel = raf.getChannel();
+            final long size = channel.size();
+            final long chunk = chunkSize;
+            final int count = (int) ((size + chunk - 1) / chunk);
+            final byte[][] leaves = new byte[count][];
+            final AtomicInteger next = new AtomicInteger();
+            parallelism = Math.max(1, Math.min(parallelism, count));
+            executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>());
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < parallelism; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        MessageDigest md5 = getMd5();
+                        // 每个线程复用一个缓冲区，按位置读取，不改变 channel 的 position
+                        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(READ_BUFFER_SIZE, chunk));
+                        int index;
+                        while ((index = next.getAndIncrement()) < count) {
+                            long position = index * chunk;
+                            long end = Math.min(position + chunk, size);
+                            while (position < end) {
+                                buffer.clear();
+                                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                                int len = channel.read(buffer, position);
+                                if (len == -1) {
+                                    throw new IOException("unexpected end of file at " + position);
+                                }
+                                md5.update(buffer.array(), 0, len);
+                                position += len;
+                            }
+                            leaves[index] = md5.digest();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+            MessageDigest md5 = getMd5();
+            for (byte[] leaf : leaves) {
+                md5.update(leaf);
+            }
+            result = HexUtil.encode(md5.digest());
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            if (null != raf) {
+                try {
+                    raf.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * 对字符串进行对此 MD5 加密，提高安全性
      *
@@ -159,22 +254,82 @@ public final class Md5Util {
         if (TextUtils.isEmpty(string)) {
             return "";
         }
-        MessageDigest md5 = null;
         try {
-            md5 = MessageDigest.getInstance("MD5");
-            byte[] bytes = md5.digest((string + slat).getBytes());
-            String result = "";
-            for (byte b : bytes) {
-                String temp = Integer.toHexString(b & 0xff);
-                if (temp.length() == 1) {
-                    temp = "0" + temp;
-                }
-                result += temp;
-            }
-            return result;
+            byte[] bytes = getMd5().digest((string + slat).getBytes());
+            return HexUtil.encode(bytes);
         } catch (NoSuchAlgorithmException e) {
             e.printStackTrace();
         }
         return "";
     }
+
+    /**
+     * 计算字节数组的 MD5 值
+     *
+     * @param data 字节数组
+     * @return 加密后的数据
+     */
+    public static String encrypt(byte[] data) {
+        if (data == null) {
+            return "";
+        }
+        return encrypt(data, 0, data.length);
+    }
+
+    /**
+     * 计算字节数组中一段数据的 MD5 值
+     *
+     * @param data   字节数组
+     * @param offset 起始位置
+     * @param len    字节数
+     * @return 加密后的数据
+     */
+    public static String encrypt(byte[] data, int offset, int len) {
+        if (data == null) {
+            return "";
+        }
+        try {
+            MessageDigest md5 = getMd5();
+            md5.update(data, offset, len);
+            return HexUtil.encode(md5.digest());
+        } catch (NoSuchAlgorithmException e) {
+            e.printStackTrace();
+        }
+        return "";
+    }
+
+    /**
+     * 计算 ByteBuffer 中剩余数据（position 到 limit）的 MD5 值，不改变 buffer 的 position
+     *
+     * @param buffer 数据
+     * @return 加密后的数据
+     */
+    public static String encrypt(ByteBuffer buffer) {
+        if (buffer == null) {
+            return "";
+        }
+        try {
+            MessageDigest md5 = getMd5();
+            md5.update(buffer.duplicate());
+            return HexUtil.encode(md5.digest());
+        } catch (NoSuchAlgorithmException e) {
+            e.printStackTrace();
+        }
+        return "";
+    }
+
+    /**
+     * 获取当前线程的 MD5 MessageDigest，已重置
+     */
+    private static MessageDigest getMd5() throws NoSuchAlgorithmException {
+        MessageDigest md5 = MD5.get();
+        if (md5 == null) {
+            md5 = MessageDigest.getInstance("MD5");
+            MD5.set(md5);
+        } else {
+            // 上次计算可能因为异常中断，先重置
+            md5.reset();
+        }
+        return md5;
+    }
 }
@@ -22,20 +22,20 @@ import android.graphics.Canvas;
 import android.graphics.PixelFormat;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
+
+import com.liyi.sutils.utils.io.WriteBehindQueue.PendingWrite;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
@@ -43,13 +43,18 @@ import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.io.Serializable;
-import java.util.Collections;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 轻量级缓存工具类
@@ -63,6 +68,13 @@ public class ACache {
     private static final int MAX_COUNT = Integer.MAX_VALUE;
     private static Map<String, ACache> mInstanceMap = new HashMap<String, ACache>();
     private ACacheManager mCache;
+    // 内存缓存，未开启时为 null
+    private MemoryCache mMemoryCache;
+    private MemoryCache mBitmapCache;
+    // 异步写入队列
+    private WriteBehindQueue mWriteQueue;
+    // 统计信息
+    private final StatsCounter mStats = new StatsCounter();
 
     public static final String CACHE = "ACache";
 
@@ -88,10 +100,23 @@ public class ACache {
     }
 
     public static ACache get(File cacheDir, long max_zise, int max_count) {
+        return get(cacheDir, new Config().setMaxSize(max_zise).setMaxCount(max_count));
+    }
+
+    /**
+     * 获取缓存实例
+     * <p>
+     * 同一目录只会创建一个实例，已创建的实例不会再应用新的配置
+     *
+     * @param cacheDir 缓存目录
+     * @param config   缓存配置
+     * @return 缓存实例
+     */
+    public static synchronized ACache get(File cacheDir, Config config) {
         ///data/data/com.yangfuhai.asimplecachedemo/cache/ACache
         ACache manager = mInstanceMap.get(cacheDir.getAbsoluteFile() + myPid());
         if (manager == null) {
-            manager = new ACache(cacheDir, max_zise, max_count);
+            manager = new ACache(cacheDir, config == null ? new Config() : config);
             //{/data/data/com.yangfuhai.asimplecachedemo/cache/ACache_4137=org.afinal.simplecache.ACache@2bc38270}
             //{/data/data/com.yangfuhai.asimplecachedemo/cache/ACache_12189=org.afinal.simplecache.ACache@2bc3d890}
             mInstanceMap.put(cacheDir.getAbsolutePath() + myPid(), manager);
@@ -103,11 +128,418 @@ public class ACache {
         return "_" + android.os.Process.myPid();
     }
 
-    private ACache(File cacheDir, long max_size, int max_count) {
+    /**
+     * 包内可见，单元测试中不经过实例缓存重新打开同一目录，模拟进程重启
+     */
+    ACache(File cacheDir, Config config) {
         if (!cacheDir.exists() && !cacheDir.mkdirs()) {
             throw new RuntimeException("can't make dirs in " + cacheDir.getAbsolutePath());
         }
-        mCache = new ACacheManager(cacheDir, max_size, max_count);
+        mCache = new ACacheManager(cacheDir, config.maxSize, config.maxCount, config.concurrencyLevel, config.layout, config.sweepInterval, mStats);
+        if (config.memoryCacheSize > 0) {
+            mMemoryCache = new MemoryCache(config.memoryCacheSize);
+        }
+        if (config.bitmapCacheSize > 0) {
+            mBitmapCache = new MemoryCache(config.bitmapCacheSize);
+        }
+        mWriteQueue = new WriteBehindQueue(config.asyncQueueCapacity, new WriteBehindQueue.Sink() {
+            @Override
+            public void write(String key, long dueTime, byte[] value) {
+                writeFile(key, dueTime, value);
+            }
+        });
+    }
+
+    /**
+     * 缓存配置类
+     */
+    public static final class Config {
+        // 缓存的最大字节数
+        private long maxSize = MAX_SIZE;
+        // 缓存的最大数量
+        private int maxCount = MAX_COUNT;
+        // 并发写入的线程数
+        private int concurrencyLevel = 1;
+        // 内存缓存的最大字节数，0 表示不开启
+        private long memoryCacheSize;
+        // bitmap 内存缓存的最大字节数，0 表示不开启
+        private long bitmapCacheSize;
+        // 缓存文件的存储方式
+        private Layout layout = Layout.FLAT;
+        // 异步写入队列的容量
+        private int asyncQueueCapacity = 64;
+        // 清理到期缓存的间隔，单位：毫秒
+        private long sweepInterval = 60 * 1000;
+
+        /**
+         * 设置缓存的最大字节数
+         *
+         * @param maxSize 最大字节数
+         * @return {@link Config}
+         */
+        public Config setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * 设置缓存的最大数量
+         *
+         * @param maxCount 最大数量
+         * @return {@link Config}
+         */
+        public Config setMaxCount(int maxCount) {
+            this.maxCount = maxCount;
+            return this;
+        }
+
+        /**
+         * 设置预计同时写入缓存的线程数（并发模式）
+         * <p>
+         * 大于 1 时缓存索引会按 key 分段加锁，多个后台线程可以同时写入而不会互相阻塞
+         *
+         * @param concurrencyLevel 并发写入的线程数，默认为 1
+         * @return {@link Config}
+         */
+        public Config setConcurrencyLevel(int concurrencyLevel) {
+            this.concurrencyLevel = Math.max(1, concurrencyLevel);
+            return this;
+        }
+
+        /**
+         * 设置内存缓存的最大字节数
+         * <p>
+         * 开启后 String、byte 以及序列化数据读取后会保存在内存中，再次读取时不需要访问磁盘
+         *
+         * @param memoryCacheSize 最大字节数，0 表示不开启（默认）
+         * @return {@link Config}
+         */
+        public Config setMemoryCacheSize(long memoryCacheSize) {
+            this.memoryCacheSize = memoryCacheSize;
+            return this;
+        }
+
+        /**
+         * 设置 bitmap 内存缓存的最大字节数，按 bitmap 实际占用的内存计算
+         *
+         * @param bitmapCacheSize 最大字节数，0 表示不开启（默认）
+         * @return {@link Config}
+         */
+        public Config setBitmapCacheSize(long bitmapCacheSize) {
+            this.bitmapCacheSize = bitmapCacheSize;
+            return this;
+        }
+
+        /**
+         * 设置缓存文件的存储方式
+         * <p>
+         * 两种方式的文件名不同，切换后之前缓存的数据将无法读取
+         *
+         * @param layout 存储方式，默认为 {@link Layout#FLAT}
+         * @return {@link Config}
+         */
+        public Config setLayout(Layout layout) {
+            this.layout = layout == null ? Layout.FLAT : layout;
+            return this;
+        }
+
+        /**
+         * 设置异步写入队列的容量，队列已满时 putAsync 会阻塞，直到有数据写入磁盘
+         *
+         * @param asyncQueueCapacity 队列容量，默认为 64
+         * @return {@link Config}
+         */
+        public Config setAsyncQueueCapacity(int asyncQueueCapacity) {
+            this.asyncQueueCapacity = Math.max(1, asyncQueueCapacity);
+            return this;
+        }
+
+        /**
+         * 设置后台清理到期缓存的间隔
+         * <p>
+         * 设置了保存时间的缓存到期后，由低优先级的后台线程定期删除，不必等到下次读取
+         *
+         * @param sweepInterval 清理间隔，单位：毫秒，默认为 60 秒；小于等于 0 时不清理，只在读取时删除
+         * @return {@link Config}
+         */
+        public Config setSweepInterval(long sweepInterval) {
+            this.sweepInterval = sweepInterval;
+            return this;
+        }
+    }
+
+    /**
+     * 缓存文件的存储方式
+     */
+    public enum Layout {
+        // 文件名为 key 的 hashCode，所有文件存放在缓存目录中（兼容旧版本）；hashCode 相同的 key 会互相覆盖
+        FLAT,
+        // 文件名为 key 的 SHA-1 摘要，按摘要的前两个字节分两级目录存放，文件头部保存 key，读取时校验
+        HASHED
+    }
+
+    /**
+     * 缓存被淘汰的原因
+     */
+    public enum EvictionReason {
+        // 超出缓存大小上限，包括单个数据超过上限而无法放入的情况
+        SIZE,
+        // 超出缓存数量上限
+        COUNT,
+        // 到期（读取时发现或后台清理）
+        EXPIRED
+    }
+
+    /**
+     * 缓存事件的监听器，用于把统计信息导出到其他的监控系统
+     * <p>
+     * 回调在读写缓存的线程中执行，不要执行耗时的操作
+     */
+    public interface OnCacheEventListener {
+        /**
+         * 读取数据
+         *
+         * @param key   读取的key
+         * @param hit   是否命中
+         * @param nanos 从磁盘读取的耗时，单位：纳秒；命中内存缓存或异步写入队列时为 0
+         */
+        void onLoad(String key, boolean hit, long nanos);
+
+        /**
+         * 写入数据
+         *
+         * @param key   保存的key
+         * @param bytes 写入的字节数（不包括头部）
+         * @param nanos 写入的耗时，单位：纳秒；以流的方式写入时为 -1
+         */
+        void onPut(String key, long bytes, long nanos);
+
+        /**
+         * 淘汰数据
+         *
+         * @param reason 淘汰的原因
+         * @param bytes  释放的字节数
+         */
+        void onEvict(EvictionReason reason, long bytes);
+    }
+
+    /**
+     * 缓存统计信息的快照
+     */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long memoryHitCount;
+        private final long memoryMissCount;
+        private final long putCount;
+        private final long bytesWritten;
+        private final long[] evictionCounts;
+        private final Histogram loadLatency;
+        private final Histogram putLatency;
+        private final long size;
+        private final int count;
+
+        Stats(long hitCount, long missCount, long memoryHitCount, long memoryMissCount, long putCount, long bytesWritten,
+                      long[] evictionCounts, Histogram loadLatency, Histogram putLatency, long size, int count) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.memoryHitCount = memoryHitCount;
+            this.memoryMissCount = memoryMissCount;
+            this.putCount = putCount;
+            this.bytesWritten = bytesWritten;
+            this.evictionCounts = evictionCounts;
+            this.loadLatency = loadLatency;
+            this.putLatency = putLatency;
+            this.size = size;
+            this.count = count;
+        }
+
+        /**
+         * 命中次数（包括内存缓存、异步写入队列和磁盘）
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * 未命中次数（数据不存在或已到期）
+         */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * 命中率，没有读取过时为 1
+         */
+        public double getHitRate() {
+            long total = hitCount + missCount;
+            return total == 0 ? 1.0 : (double) hitCount / total;
+        }
+
+        /**
+         * 内存缓存的命中次数（包括 bitmap 内存缓存）
+         */
+        public long getMemoryHitCount() {
+            return memoryHitCount;
+        }
+
+        /**
+         * 内存缓存的未命中次数（包括 bitmap 内存缓存）
+         */
+        public long getMemoryMissCount() {
+            return memoryMissCount;
+        }
+
+        /**
+         * 写入次数
+         */
+        public long getPutCount() {
+            return putCount;
+        }
+
+        /**
+         * 写入的字节数（不包括头部）
+         */
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        /**
+         * 到期被删除的次数
+         */
+        public long getExpirationCount() {
+            return getEvictionCount(EvictionReason.EXPIRED);
+        }
+
+        /**
+         * 按原因统计的淘汰次数
+         */
+        public long getEvictionCount(EvictionReason reason) {
+            return evictionCounts[reason.ordinal()];
+        }
+
+        /**
+         * 淘汰的总次数
+         */
+        public long getEvictionCount() {
+            long total = 0;
+            for (long count : evictionCounts) {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * 从磁盘读取的耗时分布
+         */
+        public Histogram getLoadLatency() {
+            return loadLatency;
+        }
+
+        /**
+         * 写入磁盘的耗时分布（不包括以流的方式写入）
+         */
+        public Histogram getPutLatency() {
+            return putLatency;
+        }
+
+        /**
+         * 当前缓存的总大小，单位：字节
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * 当前缓存的文件数
+         */
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{hitCount=" + hitCount + ", missCount=" + missCount + ", putCount=" + putCount
+                    + ", bytesWritten=" + bytesWritten + ", evictionCounts=" + Arrays.toString(evictionCounts)
+                    + ", size=" + size + ", count=" + count + "}";
+        }
+    }
+
+    /**
+     * 耗时分布
+     * <p>
+     * 按 2 的幂划分区间，第 i 个区间为 [2^(i-1), 2^i) 微秒，第 0 个区间为小于 1 微秒
+     */
+    public static final class Histogram {
+        static final int BUCKET_COUNT = 32;
+        private final long[] counts;
+        private final long totalNanos;
+
+        Histogram(long[] counts, long totalNanos) {
+            this.counts = counts;
+            this.totalNanos = totalNanos;
+        }
+
+        /**
+         * 记录的次数
+         */
+        public long getCount() {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * 平均耗时，单位：纳秒
+         */
+        public long getMeanNanos() {
+            long count = getCount();
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        /**
+         * 获取百分位的耗时（所在区间的上限）
+         *
+         * @param percentile 百分位，取值为 0 ~ 100
+         * @return 耗时，单位：微秒；没有记录时返回 0
+         */
+        public long getPercentileMicros(double percentile) {
+            long count = getCount();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return getBucketUpperBoundMicros(i);
+                }
+            }
+            return getBucketUpperBoundMicros(counts.length - 1);
+        }
+
+        /**
+         * 各区间的次数
+         */
+        public long[] getBucketCounts() {
+            return counts.clone();
+        }
+
+        /**
+         * 区间的上限，单位：微秒
+         */
+        public static long getBucketUpperBoundMicros(int bucket) {
+            return 1L << bucket;
+        }
+
+        static int bucketOf(long nanos) {
+            long micros = nanos / 1000;
+            int bucket = micros <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+            return Math.min(bucket, BUCKET_COUNT - 1);
+        }
     }
 
     /**
@@ -122,15 +554,50 @@ public class ACache {
      */
     class xFileOutputStream extends FileOutputStream {
         File file;
-
-        public xFileOutputStream(File file) throws FileNotFoundException {
-            super(file);
+        // 数据先写入临时文件，关闭时再替换缓存文件，读取时不会读到写了一半的数据
+        File tmp;
+        String key;
+        // 写入的头部，没有头部时为 null
+        byte[] header;
+        boolean closed;
+
+        public xFileOutputStream(File file, File tmp, String key) throws IOException {
+            super(tmp);
             this.file = file;
+            this.tmp = tmp;
+            this.key = key;
+            // 数据的开头未知，总是写入头部，避免数据以头部的魔数开头时被误读
+            header = mCache.newHeader(key, 0, -1, true);
+            write(header);
         }
 
         public void close() throws IOException {
-            super.close();
-            mCache.put(file);
+            // 关闭 channel 时会再次调用 close
+            if (closed) {
+                return;
+            }
+            closed = true;
+            long payloadLength = -1;
+            boolean written = false;
+            try {
+                FileChannel channel = getChannel();
+                payloadLength = channel.position() - header.length;
+                // 写入完成后在头部补上数据长度
+                channel.write(ByteBuffer.wrap(mCache.newHeader(key, 0, payloadLength, true)), 0);
+                written = true;
+            } finally {
+                super.close();
+                if (!written) {
+                    tmp.delete();
+                }
+            }
+            if (!mCache.commit(tmp, file)) {
+                tmp.delete();
+                throw new IOException("can't rename " + tmp);
+            }
+            mCache.put(file, 0);
+            invalidateMemory(key);
+            mStats.recordPut(key, payloadLength, -1);
         }
     }
 
@@ -145,24 +612,7 @@ public class ACache {
      * @param value 保存的String数据
      */
     public void put(String key, String value) {
-        File file = mCache.newFile(key);
-        BufferedWriter out = null;
-        try {
-            out = new BufferedWriter(new FileWriter(file), 1024);
-            out.write(value);
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            if (out != null) {
-                try {
-                    out.flush();
-                    out.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-            mCache.put(file);
-        }
+        writeEntry(key, 0, Utils.toBytes(value));
     }
 
     /**
@@ -173,7 +623,7 @@ public class ACache {
      * @param saveTime 保存的时间，单位：秒
      */
     public void put(String key, String value, int saveTime) {
-        put(key, Utils.newStringWithDateInfo(saveTime, value));
+        writeEntry(key, Utils.getDueTime(saveTime), Utils.toBytes(value));
     }
 
     /**
@@ -183,45 +633,62 @@ public class ACache {
      * @return String 数据
      */
     public String getAsString(String key) {
+        PendingWrite pending = getPending(key);
+        if (pending != null) {
+            return pending.isDue() ? null : Utils.toString(pending.value);
+        }
+        Object cached = getFromMemory(mMemoryCache, key, String.class);
+        if (cached != null) {
+            return (String) cached;
+        }
+        long stamp = mMemoryCache != null ? mMemoryCache.stamp() : 0;
+        long start = System.nanoTime();
         ///data/data/com.yangfuhai.asimplecachedemo/cache/ACache/1727748931
         File file = mCache.get(key);
-        if (!file.exists())
+        if (!file.exists()) {
+            mStats.recordLoad(key, false, System.nanoTime() - start);
             return null;
+        }
         boolean removeFile = false;
-        BufferedReader in = null;
+        String readString = null;
+        RandomAccessFile RAFile = null;
         try {
-            in = new BufferedReader(new FileReader(file));
-            String readString = "";
-            String currentLine;
-            while ((currentLine = in.readLine()) != null) {
-                readString += currentLine;
-            }
-            if (!Utils.isDue(readString)) {
-                return Utils.clearDateInfo(readString);
-            } else {
+            RAFile = new RandomAccessFile(file, "r");
+            // 只读取头部判断是否到期
+            CacheHeader header = CacheHeader.readHeader(RAFile.getChannel());
+            if (header == null || header.isDue()) {
                 removeFile = true;
                 return null;
             }
+            if (!header.matches(key)) {
+                return null;
+            }
+            // 按文件长度一次性读入，再整体解码，保留原有的换行符
+            byte[] data = new byte[(int) (RAFile.length() - header.offset)];
+            RAFile.seek(header.offset);
+            RAFile.readFully(data);
+            readString = Utils.toString(data);
+            if (mMemoryCache != null) {
+                mMemoryCache.put(key, readString, readString.length() * 2L, header.dueTime, stamp);
+            }
+            return readString;
         } catch (IOException e) {
             e.printStackTrace();
             return null;
         } finally {
-            if (in != null) {
+            if (RAFile != null) {
                 try {
-                    in.close();
+                    RAFile.close();
                 } catch (IOException e) {
                     e.printStackTrace();
                 }
             }
             if (removeFile)
-                remove(key);
+                removeExpired(key);
+            mStats.recordLoad(key, readString != null, System.nanoTime() - start);
         }
     }
 
-    // =======================================
-    // ============= JSONObject 数据 读写 ==============
-    // =======================================
-
     /**
      * 保存 JSONObject数据 到 缓存中
      *
@@ -313,11 +780,52 @@ public class ACache {
      * @param value 保存的数据
      */
     public void put(String key, byte[] value) {
+        writeEntry(key, 0, value);
+    }
+
+    /**
+     * 写入缓存文件
+     *
+     * @param key     保存的key
+     * @param dueTime 到期时间，0 表示永不到期
+     * @param value   保存的数据
+     */
+    private void writeEntry(String key, long dueTime, byte[] value) {
+        // 取消尚未写入的异步数据，避免覆盖本次写入
+        mWriteQueue.cancel(key);
+        writeFile(key, dueTime, value);
+    }
+
+    private void writeFile(String key, long dueTime, byte[] value) {
         File file = mCache.newFile(key);
+        if (writeData(key, file, dueTime, value)) {
+            mCache.put(file, dueTime);
+        }
+    }
+
+    /**
+     * 写入缓存文件，不更新索引
+     * <p>
+     * 写入失败时结束该文件的 DIRTY 记录，调用方不需要再放入索引
+     *
+     * @return 是否写入成功
+     */
+    private boolean writeData(String key, File file, long dueTime, byte[] value) {
+        long start = System.nanoTime();
+        invalidateMemory(key);
+        mCache.beginWrite(file);
+        // 先写入临时文件再替换，读取时不会读到写了一半的数据
+        File tmp = mCache.newTempFile(file);
         FileOutputStream out = null;
+        boolean written = false;
         try {
-            out = new FileOutputStream(file);
+            out = mCache.openForWrite(tmp);
+            byte[] header = mCache.newHeader(key, dueTime, value.length, CacheHeader.startsWithMagic(value));
+            if (header != null) {
+                out.write(header);
+            }
             out.write(value);
+            written = true;
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -326,11 +834,18 @@ public class ACache {
                     out.flush();
                     out.close();
                 } catch (IOException e) {
+                    written = false;
                     e.printStackTrace();
                 }
             }
-            mCache.put(file);
         }
+        if (!written || !mCache.commit(tmp, file)) {
+            tmp.delete();
+            mCache.abortWrite(file);
+            return false;
+        }
+        mStats.recordPut(key, value.length, System.nanoTime() - start);
+        return true;
     }
 
     /**
@@ -341,30 +856,152 @@ public class ACache {
      * @throws FileNotFoundException if the file can not be created.
      */
     public OutputStream put(String key) throws FileNotFoundException {
-        return new xFileOutputStream(mCache.newFile(key));
+        mWriteQueue.cancel(key);
+        invalidateMemory(key);
+        File file = mCache.newFile(key);
+        mCache.beginWrite(file);
+        File tmp = mCache.newTempFile(file);
+        mCache.ensureParent(tmp);
+        try {
+            try {
+                return new xFileOutputStream(file, tmp, key);
+            } catch (FileNotFoundException e) {
+                // 分级目录可能已被外部删除，重新创建后再试一次
+                if (!mCache.recreateParent(tmp)) {
+                    throw e;
+                }
+                return new xFileOutputStream(file, tmp, key);
+            }
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new FileNotFoundException(e.getMessage());
+        }
     }
 
     /**
+     * The returned stream is positioned after the header, so the data is
+     * streamed as it was saved without being buffered in memory.
+     *
      * @param key the file name.
-     * @return (InputStream or null) stream previously saved in cache.
+     * @return (InputStream or null) stream previously saved in cache,
+     * null if it does not exist or is due.
      * @throws FileNotFoundException if the file can not be opened
      */
     public InputStream get(String key) throws FileNotFoundException {
+        PendingWrite pending = getPending(key);
+        if (pending != null) {
+            return pending.isDue() ? null : new ByteArrayInputStream(pending.value);
+        }
+        long start = System.nanoTime();
         File file = mCache.get(key);
-        if (!file.exists())
+        if (!file.exists()) {
+            mStats.recordLoad(key, false, System.nanoTime() - start);
             return null;
-        return new FileInputStream(file);
+        }
+        FileInputStream in = new FileInputStream(file);
+        boolean removeFile = false;
+        try {
+            CacheHeader header = CacheHeader.readHeader(in.getChannel());
+            if (header == null || header.isDue()) {
+                removeFile = true;
+            } else if (header.matches(key)) {
+                Utils.skipFully(in, header.offset);
+                mStats.recordLoad(key, true, System.nanoTime() - start);
+                return in;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        try {
+            in.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (removeFile)
+            removeExpired(key);
+        mStats.recordLoad(key, false, System.nanoTime() - start);
+        return null;
     }
 
     /**
-     * 保存 byte数据 到 缓存中
+     * 以内存映射的方式获取 byte 数据
+     * <p>
+     * 直接映射文件中头部之后的数据，不会复制到 java 堆中，适合读取较大的数据（图片、json 等）
      *
-     * @param key      保存的key
+     * @param key
+     * @return 只读的 MappedByteBuffer，数据不存在或已到期时返回 null
+     */
+    public MappedByteBuffer getAsMapped(String key) {
+        // 映射需要磁盘上的文件，等待该 key 的异步写入完成
+        mWriteQueue.await(key);
+        long start = System.nanoTime();
+        RandomAccessFile RAFile = null;
+        boolean removeFile = false;
+        MappedByteBuffer buffer = null;
+        try {
+            File file = mCache.get(key);
+            if (!file.exists())
+                return null;
+            RAFile = new RandomAccessFile(file, "r");
+            FileChannel channel = RAFile.getChannel();
+            CacheHeader header = CacheHeader.readHeader(channel);
+            if (header == null || header.isDue()) {
+                removeFile = true;
+                return null;
+            }
+            if (!header.matches(key)) {
+                return null;
+            }
+            // 映射建立后即使关闭文件也仍然有效
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, header.offset, channel.size() - header.offset);
+            return buffer;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            if (RAFile != null) {
+                try {
+                    RAFile.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (removeFile)
+                removeExpired(key);
+            mStats.recordLoad(key, buffer != null, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 以只读 ByteBuffer 的方式获取 byte 数据
+     * <p>
+     * 命中内存缓存时直接包装内存中的数据，否则以内存映射的方式读取文件，均不会复制数据
+     *
+     * @param key
+     * @return 只读的 ByteBuffer，数据不存在或已到期时返回 null
+     */
+    public ByteBuffer getAsByteBuffer(String key) {
+        PendingWrite pending = getPending(key);
+        if (pending != null) {
+            return pending.isDue() ? null : ByteBuffer.wrap(pending.value).asReadOnlyBuffer();
+        }
+        Object cached = getFromMemory(mMemoryCache, key, byte[].class);
+        if (cached != null) {
+            return ByteBuffer.wrap((byte[]) cached).asReadOnlyBuffer();
+        }
+        return getAsMapped(key);
+    }
+
+    /**
+     * 保存 byte数据 到 缓存中
+     *
+     * @param key      保存的key
      * @param value    保存的数据
      * @param saveTime 保存的时间，单位：秒
      */
     public void put(String key, byte[] value, int saveTime) {
-        put(key, Utils.newByteArrayWithDateInfo(saveTime, value));
+        writeEntry(key, Utils.getDueTime(saveTime), value);
     }
 
     /**
@@ -374,21 +1011,69 @@ public class ACache {
      * @return byte 数据
      */
     public byte[] getAsBinary(String key) {
+        byte[] data = readBinary(key);
+        // 内存缓存以及异步写入队列中的数组是共享的，返回副本以免被调用方修改
+        return data != null && (mMemoryCache != null || mWriteQueue.isShared(key, data)) ? data.clone() : data;
+    }
+
+    private byte[] readBinary(String key) {
+        return readBinary(key, null);
+    }
+
+    /**
+     * @param dueTime 不为 null 时，返回数据的到期时间写入 dueTime[0]，0 表示永不到期
+     */
+    private byte[] readBinary(String key, long[] dueTime) {
+        PendingWrite pending = getPending(key);
+        if (pending != null) {
+            if (dueTime != null) {
+                dueTime[0] = pending.dueTime;
+            }
+            return pending.isDue() ? null : pending.value;
+        }
+        Object cached = getFromMemory(mMemoryCache, key, byte[].class, dueTime);
+        if (cached != null) {
+            return (byte[]) cached;
+        }
+        long stamp = mMemoryCache != null ? mMemoryCache.stamp() : 0;
+        return readData(key, mCache.get(key), stamp, dueTime);
+    }
+
+    /**
+     * 读取缓存文件头部之后的数据，不更新索引
+     *
+     * @param stamp   读取前获取的内存缓存失效标记
+     * @param dueTime 不为 null 时，数据的到期时间写入 dueTime[0]
+     */
+    private byte[] readData(String key, File file, long stamp, long[] dueTime) {
+        long start = System.nanoTime();
         RandomAccessFile RAFile = null;
         boolean removeFile = false;
+        byte[] value = null;
         try {
-            File file = mCache.get(key);
             if (!file.exists())
                 return null;
             RAFile = new RandomAccessFile(file, "r");
-            byte[] byteArray = new byte[(int) RAFile.length()];
-            RAFile.read(byteArray);
-            if (!Utils.isDue(byteArray)) {
-                return Utils.clearDateInfo(byteArray);
-            } else {
+            // 只读取头部判断是否到期，未到期时直接读取头部之后的数据，不再拷贝
+            CacheHeader header = CacheHeader.readHeader(RAFile.getChannel());
+            if (header == null || header.isDue()) {
                 removeFile = true;
                 return null;
             }
+            if (!header.matches(key)) {
+                return null;
+            }
+            byte[] data = new byte[(int) (RAFile.length() - header.offset)];
+            RAFile.seek(header.offset);
+            RAFile.readFully(data);
+            if (mMemoryCache != null) {
+                mMemoryCache.put(key, data, data.length, header.dueTime, stamp);
+            }
+            if (dueTime != null) {
+                dueTime[0] = header.dueTime;
+            }
+            value = data;
+            return value;
         } catch (Exception e) {
             e.printStackTrace();
             return null;
@@ -401,7 +1086,8 @@ public class ACache {
                 }
             }
             if (removeFile)
-                remove(key);
+                removeExpired(key);
+            mStats.recordLoad(key, value != null, System.nanoTime() - start);
         }
     }
 
@@ -427,25 +1113,14 @@ public class ACache {
      * @param saveTime 保存的时间，单位：秒
      */
     public void put(String key, Serializable value, int saveTime) {
-        ByteArrayOutputStream baos = null;
-        ObjectOutputStream oos = null;
-        try {
-            baos = new ByteArrayOutputStream();
-            oos = new ObjectOutputStream(baos);
-            oos.writeObject(value);
-            byte[] data = baos.toByteArray();
-            if (saveTime != -1) {
-                put(key, data, saveTime);
-            } else {
-                put(key, data);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                oos.close();
-            } catch (IOException e) {
-            }
+        byte[] data = Utils.serialize(value);
+        if (data == null) {
+            return;
+        }
+        if (saveTime != -1) {
+            put(key, data, saveTime);
+        } else {
+            put(key, data);
         }
     }
 
@@ -456,7 +1131,7 @@ public class ACache {
      * @return Serializable 数据
      */
     public Object getAsObject(String key) {
-        byte[] data = getAsBinary(key);
+        byte[] data = readBinary(key);
         if (data != null) {
             ByteArrayInputStream bais = null;
             ObjectInputStream ois = null;
@@ -518,10 +1193,22 @@ public class ACache {
      * @return bitmap 数据
      */
     public Bitmap getAsBitmap(String key) {
-        if (getAsBinary(key) == null) {
+        Object cached = getFromMemory(mBitmapCache, key, Bitmap.class);
+        if (cached != null && !((Bitmap) cached).isRecycled()) {
+            return (Bitmap) cached;
+        }
+        long stamp = mBitmapCache != null ? mBitmapCache.stamp() : 0;
+        long[] dueTime = new long[1];
+        byte[] data = readBinary(key, dueTime);
+        if (data == null) {
             return null;
         }
-        return Utils.Bytes2Bimap(getAsBinary(key));
+        Bitmap bitmap = Utils.Bytes2Bimap(data);
+        if (bitmap != null && mBitmapCache != null) {
+            // 与数据使用同一个到期时间，到期后不再从内存中返回
+            mBitmapCache.put(key, bitmap, Utils.getBitmapSize(bitmap), dueTime[0], stamp);
+        }
+        return bitmap;
     }
 
     // =======================================
@@ -556,10 +1243,209 @@ public class ACache {
      * @return Drawable 数据
      */
     public Drawable getAsDrawable(String key) {
-        if (getAsBinary(key) == null) {
-            return null;
+        return Utils.bitmap2Drawable(getAsBitmap(key));
+    }
+
+    // =======================================
+    // ============= 批量读写 =============
+    // =======================================
+
+    /**
+     * 批量保存数据到缓存中
+     * <p>
+     * 支持 byte[]、String、JSONObject、JSONArray、Bitmap、Drawable 和 Serializable 类型的数据，
+     * 全部文件写入后一次性更新缓存额度、索引和日志
+     *
+     * @param values 保存的数据
+     */
+    public void putAll(Map<String, ?> values) {
+        putAll(values, 0L);
+    }
+
+    /**
+     * 批量保存数据到缓存中
+     *
+     * @param values   保存的数据
+     * @param saveTime 保存的时间，单位：秒
+     */
+    public void putAll(Map<String, ?> values, int saveTime) {
+        putAll(values, Utils.getDueTime(saveTime));
+    }
+
+    private void putAll(Map<String, ?> values, long dueTime) {
+        // 先转换全部数据，类型不支持时不写入任何数据
+        Map<String, byte[]> data = new LinkedHashMap<String, byte[]>(values.size() * 4 / 3 + 1);
+        for (Entry<String, ?> entry : values.entrySet()) {
+            byte[] value = Utils.toBytes(entry.getValue());
+            if (value != null) {
+                data.put(entry.getKey(), value);
+            }
+        }
+        List<File> files = new ArrayList<File>(data.size());
+        for (Entry<String, byte[]> entry : data.entrySet()) {
+            mWriteQueue.cancel(entry.getKey());
+            File file = mCache.newFile(entry.getKey());
+            // 写入失败的文件不放入索引
+            if (writeData(entry.getKey(), file, dueTime, entry.getValue())) {
+                files.add(file);
+            }
+        }
+        mCache.putAll(files, dueTime);
+    }
+
+    /**
+     * 批量读取 byte 数据
+     * <p>
+     * 读取完成后一次性更新索引和日志
+     *
+     * @param keys 读取的key
+     * @return 缓存中存在且未到期的数据，按 keys 的顺序排列
+     */
+    public Map<String, byte[]> getAll(Collection<String> keys) {
+        Map<String, byte[]> result = new LinkedHashMap<String, byte[]>(keys.size() * 4 / 3 + 1);
+        List<File> touched = new ArrayList<File>(keys.size());
+        for (String key : keys) {
+            if (result.containsKey(key)) {
+                continue;
+            }
+            byte[] value;
+            PendingWrite pending = getPending(key);
+            if (pending != null) {
+                value = pending.isDue() ? null : pending.value.clone();
+            } else {
+                Object cached = mMemoryCache != null ? mMemoryCache.get(key, byte[].class) : null;
+                if (cached != null) {
+                    mStats.recordLoad(key, true, 0);
+                    value = ((byte[]) cached).clone();
+                } else {
+                    long stamp = mMemoryCache != null ? mMemoryCache.stamp() : 0;
+                    value = readData(key, mCache.newFile(key), stamp, null);
+                    if (value != null && mMemoryCache != null) {
+                        value = value.clone();
+                    }
+                }
+                if (value != null) {
+                    touched.add(mCache.newFile(key));
+                }
+            }
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        mCache.touchAll(touched);
+        return result;
+    }
+
+    /**
+     * 批量读取 String 数据
+     *
+     * @param keys 读取的key
+     * @return 缓存中存在且未到期的数据，按 keys 的顺序排列
+     */
+    public Map<String, String> getAllAsString(Collection<String> keys) {
+        Map<String, byte[]> data = getAll(keys);
+        Map<String, String> result = new LinkedHashMap<String, String>(data.size() * 4 / 3 + 1);
+        for (Entry<String, byte[]> entry : data.entrySet()) {
+            result.put(entry.getKey(), Utils.toString(entry.getValue()));
+        }
+        return result;
+    }
+
+    // =======================================
+    // ============= 异步写入 =============
+    // =======================================
+
+    /**
+     * 异步保存 byte数据 到 缓存中
+     * <p>
+     * 数据放入写入队列后立即返回，由后台线程依次写入磁盘；同一个 key 尚未写入的数据会被新数据替换，
+     * 写入磁盘之前通过 get 方法也能读取到
+     *
+     * @param key   保存的key
+     * @param value 保存的数据
+     */
+    public void putAsync(String key, byte[] value) {
+        putAsync(key, value, 0L);
+    }
+
+    /**
+     * 异步保存 byte数据 到 缓存中
+     *
+     * @param key      保存的key
+     * @param value    保存的数据
+     * @param saveTime 保存的时间，单位：秒
+     */
+    public void putAsync(String key, byte[] value, int saveTime) {
+        putAsync(key, value, Utils.getDueTime(saveTime));
+    }
+
+    /**
+     * 异步保存 String数据 到 缓存中
+     *
+     * @param key   保存的key
+     * @param value 保存的String数据
+     */
+    public void putAsync(String key, String value) {
+        putAsync(key, Utils.toBytes(value), 0L);
+    }
+
+    /**
+     * 异步保存 String数据 到 缓存中
+     *
+     * @param key      保存的key
+     * @param value    保存的String数据
+     * @param saveTime 保存的时间，单位：秒
+     */
+    public void putAsync(String key, String value, int saveTime) {
+        putAsync(key, Utils.toBytes(value), Utils.getDueTime(saveTime));
+    }
+
+    /**
+     * 异步保存 Serializable数据 到 缓存中，序列化在调用线程中完成
+     *
+     * @param key   保存的key
+     * @param value 保存的value
+     */
+    public void putAsync(String key, Serializable value) {
+        putAsync(key, Utils.serialize(value), 0L);
+    }
+
+    /**
+     * 异步保存 Serializable数据 到 缓存中，序列化在调用线程中完成
+     *
+     * @param key      保存的key
+     * @param value    保存的value
+     * @param saveTime 保存的时间，单位：秒
+     */
+    public void putAsync(String key, Serializable value, int saveTime) {
+        putAsync(key, Utils.serialize(value), Utils.getDueTime(saveTime));
+    }
+
+    private void putAsync(String key, byte[] value, long dueTime) {
+        if (value == null) {
+            return;
         }
-        return Utils.bitmap2Drawable(Utils.Bytes2Bimap(getAsBinary(key)));
+        // 复制一份，调用方之后修改数组不会影响写入的数据
+        mWriteQueue.enqueue(key, new PendingWrite(value.clone(), dueTime));
+        // 读取时优先返回队列中的数据，放入队列之后再清除内存缓存
+        invalidateMemory(key);
+    }
+
+    /**
+     * 等待异步写入队列中的数据全部写入磁盘
+     */
+    public void flush() {
+        mWriteQueue.flush(0);
+    }
+
+    /**
+     * 等待异步写入队列中的数据全部写入磁盘
+     *
+     * @param timeout 最长等待时间，单位：毫秒
+     * @return {@code true}: 已全部写入<br>{@code false}: 等待超时
+     */
+    public boolean flush(long timeout) {
+        return mWriteQueue.flush(Math.max(1, timeout));
     }
 
     /**
@@ -569,6 +1455,7 @@ public class ACache {
      * @return value 缓存的文件
      */
     public File file(String key) {
+        mWriteQueue.await(key);
         File f = mCache.newFile(key);
         if (f.exists())
             return f;
@@ -582,6 +1469,8 @@ public class ACache {
      * @return 是否移除成功
      */
     public boolean remove(String key) {
+        mWriteQueue.cancel(key);
+        invalidateMemory(key);
         return mCache.remove(key);
     }
 
@@ -589,148 +1478,172 @@ public class ACache {
      * 清除所有数据
      */
     public void clear() {
+        mWriteQueue.cancelAll();
+        if (mMemoryCache != null) {
+            mMemoryCache.clear();
+        }
+        if (mBitmapCache != null) {
+            mBitmapCache.clear();
+        }
         mCache.clear();
     }
 
     /**
-     * @author 杨福海（michael） www.yangfuhai.com
-     * @version 1.0
-     * @title 缓存管理器
-     */
-    public class ACacheManager {
-        private final AtomicLong cacheSize;
-        private final AtomicInteger cacheCount;
-        private final long sizeLimit;
-        private final int countLimit;
-        private final Map<File, Long> lastUsageDates = Collections.synchronizedMap(new HashMap<File, Long>());
-        protected File cacheDir;
-
-        private ACacheManager(File cacheDir, long sizeLimit, int countLimit) {
-            this.cacheDir = cacheDir;
-            this.sizeLimit = sizeLimit;
-            this.countLimit = countLimit;
-            cacheSize = new AtomicLong();
-            cacheCount = new AtomicInteger();
-            calculateCacheSizeAndCacheCount();
-        }
-
-        /**
-         * 初始化计算 cacheSize和cacheCount
-         */
-        private void calculateCacheSizeAndCacheCount() {
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    int size = 0;
-                    int count = 0;
-                    File[] cachedFiles = cacheDir.listFiles();
-                    if (cachedFiles != null) {
-                        for (File cachedFile : cachedFiles) {
-                            size += calculateSize(cachedFile);
-                            count += 1;
-                            lastUsageDates.put(cachedFile, cachedFile.lastModified());
-                        }
-                        cacheSize.set(size);
-                        cacheCount.set(count);
+     * 将旧格式（ASCII 时间前缀）的缓存文件转换为二进制头部格式
+     * <p>
+     * 旧格式的文件仍然可以正常读取，转换后读取时只需检查固定长度的头部，已到期的文件会被直接删除；
+     * 需要遍历缓存目录，建议在后台线程中调用
+     *
+     * @return 转换的文件数量
+     */
+    public int migrateLegacyEntries() {
+        int migrated = 0;
+        for (File file : mCache.listCacheFiles()) {
+            RandomAccessFile RAFile = null;
+            byte[] value = null;
+            CacheHeader header = null;
+            try {
+                RAFile = new RandomAccessFile(file, "r");
+                header = CacheHeader.readHeader(RAFile.getChannel());
+                if (header != null && header.legacy && !header.isDue()) {
+                    value = new byte[(int) (RAFile.length() - header.offset)];
+                    RAFile.seek(header.offset);
+                    RAFile.readFully(value);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                if (RAFile != null) {
+                    try {
+                        RAFile.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
                     }
                 }
-            }).start();
+            }
+            if (header == null || !header.legacy) {
+                continue;
+            }
+            if (value == null) {
+                mCache.remove(file);
+                continue;
+            }
+            // 先写入临时文件再替换，避免转换中断时损坏数据
+            mCache.beginWrite(file);
+            File tmp = mCache.newTempFile(file);
+            FileOutputStream out = null;
+            boolean written = false;
+            try {
+                out = mCache.openForWrite(tmp);
+                out.write(CacheHeader.newHeader(header.dueTime, value.length, null));
+                out.write(value);
+                written = true;
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                if (out != null) {
+                    try {
+                        out.close();
+                    } catch (IOException e) {
+                        written = false;
+                        e.printStackTrace();
+                    }
+                }
+            }
+            if (written && mCache.commit(tmp, file)) {
+                mCache.put(file, header.dueTime);
+                migrated++;
+            } else {
+                // 保留原来的旧格式文件，结束 DIRTY 记录，否则下次启动时会被删除
+                tmp.delete();
+                mCache.abortWrite(file);
+            }
         }
+        return migrated;
+    }
 
-        //文件放入程序缓存后，统计缓存总量，总数，文件存放到文件map中（value值为文件最后修改时间，便于根据设置的销毁时间进行销毁）
-        //缓存没有超过限制，则增加缓存总量，总数的数值
-        //缓存超过限制，则减少缓存总量，总数的数值
-        //通过removeNext方法找到最老文件的大小
-        private void put(File file) {
-            int curCacheCount = cacheCount.get();
-            while (curCacheCount + 1 > countLimit) {
-                long freedSize = removeNext();
-                cacheSize.addAndGet(-freedSize);
-
-                curCacheCount = cacheCount.addAndGet(-1);
-            }
-            cacheCount.addAndGet(1);
+    /**
+     * 获取内存缓存的命中次数（包括 bitmap 内存缓存）
+     *
+     * @return 命中次数
+     */
+    public long getMemoryHitCount() {
+        return (mMemoryCache != null ? mMemoryCache.hitCount.get() : 0)
+                + (mBitmapCache != null ? mBitmapCache.hitCount.get() : 0);
+    }
 
-            long valueSize = calculateSize(file);
-            long curCacheSize = cacheSize.get();
-            while (curCacheSize + valueSize > sizeLimit) {
-                long freedSize = removeNext();
-                curCacheSize = cacheSize.addAndGet(-freedSize);
-            }
-            cacheSize.addAndGet(valueSize);
+    /**
+     * 获取内存缓存的未命中次数（包括 bitmap 内存缓存）
+     *
+     * @return 未命中次数
+     */
+    public long getMemoryMissCount() {
+        return (mMemoryCache != null ? mMemoryCache.missCount.get() : 0)
+                + (mBitmapCache != null ? mBitmapCache.missCount.get() : 0);
+    }
 
-            Long currentTime = System.currentTimeMillis();
-            file.setLastModified(currentTime);
-            lastUsageDates.put(file, currentTime);
-        }
+    /**
+     * 获取缓存的统计信息
+     *
+     * @return 统计信息的快照
+     */
+    public Stats getStats() {
+        return mStats.snapshot(getMemoryHitCount(), getMemoryMissCount(), mCache.getSize(), mCache.getCount());
+    }
 
-        private File get(String key) {
-            File file = newFile(key);
-            Long currentTime = System.currentTimeMillis();
-            file.setLastModified(currentTime);
-            lastUsageDates.put(file, currentTime);
-            return file;
-        }
+    /**
+     * 设置缓存事件的监听器
+     *
+     * @param listener 监听器，为 null 时取消监听
+     */
+    public void setOnCacheEventListener(OnCacheEventListener listener) {
+        mStats.listener = listener;
+    }
 
-        private File newFile(String key) {
-            ///data/data/com.yangfuhai.asimplecachedemo/cache/ACache/1727748931
-            return new File(cacheDir, key.hashCode() + "");
+    private Object getFromMemory(MemoryCache memoryCache, String key, Class<?> type) {
+        return getFromMemory(memoryCache, key, type, null);
+    }
 
+    private Object getFromMemory(MemoryCache memoryCache, String key, Class<?> type, long[] dueTime) {
+        if (memoryCache == null) {
+            return null;
         }
-
-        private boolean remove(String key) {
-            File image = get(key);
-            return image.delete();
+        Object value = memoryCache.get(key, type, dueTime);
+        if (value != null) {
+            // 命中内存缓存时只更新磁盘缓存的访问顺序，不修改文件
+            mCache.touch(key);
+            mStats.recordLoad(key, true, 0);
         }
+        return value;
+    }
 
-        private void clear() {
-            lastUsageDates.clear();
-            cacheSize.set(0);
-            File[] files = cacheDir.listFiles();
-            if (files != null) {
-                for (File f : files) {
-                    f.delete();
-                }
-            }
+    /**
+     * 获取异步写入队列中尚未写入磁盘的数据，并记录命中
+     */
+    private PendingWrite getPending(String key) {
+        PendingWrite pending = mWriteQueue.get(key);
+        if (pending != null) {
+            mStats.recordLoad(key, !pending.isDue(), 0);
         }
+        return pending;
+    }
 
-        /**
-         * 移除旧的文件（冒泡，找到最后修改时间最小的文件）
-         *
-         * @return
-         */
-        private long removeNext() {
-            if (lastUsageDates.isEmpty()) {
-                return 0;
-            }
-
-            Long oldestUsage = null;
-            File mostLongUsedFile = null;
-            Set<Entry<File, Long>> entries = lastUsageDates.entrySet();
-            synchronized (lastUsageDates) {
-                for (Entry<File, Long> entry : entries) {
-                    if (mostLongUsedFile == null) {
-                        mostLongUsedFile = entry.getKey();
-                        oldestUsage = entry.getValue();
-                    } else {
-                        Long lastValueUsage = entry.getValue();
-                        if (lastValueUsage < oldestUsage) {
-                            oldestUsage = lastValueUsage;
-                            mostLongUsedFile = entry.getKey();
-                        }
-                    }
-                }
-            }
+    /**
+     * 删除读取时发现已到期的缓存
+     * <p>
+     * 不取消异步写入队列中的数据，该数据比到期的文件更新
+     */
+    private void removeExpired(String key) {
+        invalidateMemory(key);
+        mCache.evictExpired(mCache.newFile(key));
+    }
 
-            long fileSize = calculateSize(mostLongUsedFile);
-            if (mostLongUsedFile.delete()) {
-                lastUsageDates.remove(mostLongUsedFile);
-            }
-            return fileSize;
+    private void invalidateMemory(String key) {
+        if (mMemoryCache != null) {
+            mMemoryCache.remove(key);
         }
-
-        private long calculateSize(File file) {
-            return file.length();
+        if (mBitmapCache != null) {
+            mBitmapCache.remove(key);
         }
     }
 
@@ -741,105 +1654,106 @@ public class ACache {
      */
     private static class Utils {
 
+        private static final String CHARSET = "UTF-8";
+
         /**
-         * 判断缓存的String数据是否到期
+         * 计算到期时间
          *
-         * @param str
-         * @return true：到期了 false：还没有到期
+         * @param second 保存的时间，单位：秒
+         * @return 到期时间
          */
-        private static boolean isDue(String str) {
-            return isDue(str.getBytes());
+        private static long getDueTime(int second) {
+            return System.currentTimeMillis() + second * 1000L;
         }
 
-        /**
-         * 判断缓存的byte数据是否到期（到期：当前时间大于保存时间加上保存后的存留时间）
-         *
-         * @param data
-         * @return true：到期了 false：还没有到期
-         */
-        private static boolean isDue(byte[] data) {
-            String[] strs = getDateInfoFromDate(data);
-            if (strs != null && strs.length == 2) {
-                String saveTimeStr = strs[0];
-                while (saveTimeStr.startsWith("0")) {
-                    saveTimeStr = saveTimeStr.substring(1, saveTimeStr.length());
-                }
-                long saveTime = Long.valueOf(saveTimeStr);
-                long deleteAfter = Long.valueOf(strs[1]);
-                if (System.currentTimeMillis() > saveTime + deleteAfter * 1000) {
-                    return true;
+        private static void skipFully(InputStream in, long n) throws IOException {
+            while (n > 0) {
+                long skipped = in.skip(n);
+                if (skipped <= 0) {
+                    throw new EOFException();
                 }
+                n -= skipped;
             }
-            return false;
         }
 
-        private static String newStringWithDateInfo(int second, String strInfo) {
-            return createDateInfo(second) + strInfo;
-        }
-
-        private static byte[] newByteArrayWithDateInfo(int second, byte[] data2) {
-            byte[] data1 = createDateInfo(second).getBytes();
-            byte[] retdata = new byte[data1.length + data2.length];
-            System.arraycopy(data1, 0, retdata, 0, data1.length);
-            System.arraycopy(data2, 0, retdata, data1.length, data2.length);
-            return retdata;
-        }
-
-        private static String clearDateInfo(String strInfo) {
-            if (strInfo != null && hasDateInfo(strInfo.getBytes())) {
-                strInfo = strInfo.substring(strInfo.indexOf(mSeparator) + 1, strInfo.length());
+        private static String toString(byte[] data) {
+            try {
+                return new String(data, CHARSET);
+            } catch (UnsupportedEncodingException e) {
+                return new String(data);
             }
-            return strInfo;
         }
 
-        private static byte[] clearDateInfo(byte[] data) {
-            if (hasDateInfo(data)) {
-                return copyOfRange(data, indexOf(data, mSeparator) + 1, data.length);
+        /**
+         * 序列化对象
+         *
+         * @return 序列化后的数据，失败时返回 null
+         */
+        private static byte[] serialize(Serializable value) {
+            ByteArrayOutputStream baos = null;
+            ObjectOutputStream oos = null;
+            try {
+                baos = new ByteArrayOutputStream();
+                oos = new ObjectOutputStream(baos);
+                oos.writeObject(value);
+                oos.flush();
+                return baos.toByteArray();
+            } catch (Exception e) {
+                e.printStackTrace();
+                return null;
+            } finally {
+                try {
+                    if (oos != null)
+                        oos.close();
+                } catch (IOException e) {
+                }
             }
-            return data;
         }
 
-        //数据有无存留时间设置
-        private static boolean hasDateInfo(byte[] data) {
-            return data != null && data.length > 15 && data[13] == '-' && indexOf(data, mSeparator) > 14;
-        }
-
-        //saveDate文件保存时间毫秒数，deleteAfter文件保存后的保留时间毫秒数
-        private static String[] getDateInfoFromDate(byte[] data) {
-            if (hasDateInfo(data)) {
-                String saveDate = new String(copyOfRange(data, 0, 13));
-                String deleteAfter = new String(copyOfRange(data, 14, indexOf(data, mSeparator)));
-                return new String[]{saveDate, deleteAfter};
+        /**
+         * 批量保存时把数据转换为 byte 数组
+         *
+         * @throws IllegalArgumentException 数据类型不支持时抛出
+         */
+        private static byte[] toBytes(Object value) {
+            if (value == null) {
+                return null;
+            } else if (value instanceof byte[]) {
+                return (byte[]) value;
+            } else if (value instanceof String || value instanceof JSONObject || value instanceof JSONArray) {
+                return toBytes(value.toString());
+            } else if (value instanceof Bitmap) {
+                return Bitmap2Bytes((Bitmap) value);
+            } else if (value instanceof Drawable) {
+                return Bitmap2Bytes(drawable2Bitmap((Drawable) value));
+            } else if (value instanceof Serializable) {
+                return serialize((Serializable) value);
             }
-            return null;
+            throw new IllegalArgumentException("unsupported value type: " + value.getClass().getName());
         }
 
-        private static int indexOf(byte[] data, char c) {
-            for (int i = 0; i < data.length; i++) {
-                if (data[i] == c) {
-                    return i;
-                }
+        private static byte[] toBytes(String str) {
+            if (str == null) {
+                return null;
+            }
+            try {
+                return str.getBytes(CHARSET);
+            } catch (UnsupportedEncodingException e) {
+                return str.getBytes();
             }
-            return -1;
-        }
-
-        private static byte[] copyOfRange(byte[] original, int from, int to) {
-            int newLength = to - from;
-            if (newLength < 0)
-                throw new IllegalArgumentException(from + " > " + to);
-            byte[] copy = new byte[newLength];
-            System.arraycopy(original, from, copy, 0, Math.min(original.length - from, newLength));
-            return copy;
         }
 
-        private static final char mSeparator = ' ';
-
-        private static String createDateInfo(int second) {
-            String currentTime = System.currentTimeMillis() + "";
-            while (currentTime.length() < 13) {
-                currentTime = "0" + currentTime;
+        /**
+         * 获取 bitmap 占用的内存大小
+         */
+        private static long getBitmapSize(Bitmap bitmap) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                return bitmap.getAllocationByteCount();
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1) {
+                return bitmap.getByteCount();
             }
-            return currentTime + "-" + second + mSeparator;
+            return (long) bitmap.getRowBytes() * bitmap.getHeight();
         }
 
         /*
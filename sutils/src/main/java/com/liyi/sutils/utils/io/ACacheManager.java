@@ -0,0 +1,834 @@
+package com.liyi.sutils.utils.io;
+
+import com.liyi.sutils.utils.encrypt.HexUtil;
+import com.liyi.sutils.utils.io.ACache.EvictionReason;
+import com.liyi.sutils.utils.io.ACache.Layout;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author 杨福海（michael） www.yangfuhai.com
+ * @version 1.0
+ * @title 缓存管理器
+ */
+final class ACacheManager {
+    private static final String CHARSET = "UTF-8";
+    private static final ThreadLocal<MessageDigest> SHA1 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    };
+
+    private final AtomicLong cacheSize;
+    private final AtomicInteger cacheCount;
+    private final long sizeLimit;
+    private final int countLimit;
+    private final LruIndex lruIndex;
+    private final CacheJournal journal;
+    // 索引恢复完成前，写入和删除需要等待，避免统计与索引不一致
+    private final CountDownLatch indexReady = new CountDownLatch(1);
+    // 日志中多余的记录数，超过阈值时压缩日志
+    private final AtomicInteger redundantOpCount = new AtomicInteger();
+    private final AtomicBoolean compactScheduled = new AtomicBoolean();
+    private final ThreadPoolExecutor executor;
+    private final Layout layout;
+    // 按到期时间排列的索引，用于后台清理
+    private final ExpiryIndex expiryIndex = new ExpiryIndex();
+    private final long sweepInterval;
+    private ScheduledThreadPoolExecutor sweeper;
+    // 已经创建的分级目录
+    private final Set<File> createdDirs = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+    // 临时文件的序号
+    private final AtomicLong tmpSequence = new AtomicLong();
+    // 正在写入、还没有放入索引的文件，压缩日志时保留它们的 DIRTY 记录
+    private final Set<File> editing = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+    private final File cacheDir;
+    private final StatsCounter stats;
+
+    ACacheManager(File cacheDir, long sizeLimit, int countLimit, int concurrencyLevel, Layout layout, long sweepInterval, StatsCounter stats) {
+        this.cacheDir = cacheDir;
+        this.stats = stats;
+        this.layout = layout;
+        this.sweepInterval = sweepInterval;
+        this.sizeLimit = sizeLimit;
+        this.countLimit = countLimit;
+        this.lruIndex = new LruIndex(concurrencyLevel);
+        cacheSize = new AtomicLong();
+        cacheCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ACache-" + ACacheManager.this.cacheDir.getName());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        // 日志在初始化的线程中批量写入，放入和删除时不需要等待磁盘
+        this.journal = new CacheJournal(cacheDir, executor);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                initialize();
+            }
+        });
+    }
+
+    /**
+     * 缓存的总大小
+     */
+    long getSize() {
+        return cacheSize.get();
+    }
+
+    /**
+     * 缓存的文件数
+     */
+    int getCount() {
+        return cacheCount.get();
+    }
+
+    /**
+     * 初始化索引
+     * <p>
+     * 优先顺序读取日志恢复索引，不需要读取每个文件的信息；没有日志或日志损坏时扫描缓存目录，并重新生成日志
+     */
+    private void initialize() {
+        try {
+            LinkedHashMap<String, CacheJournal.Record> entries = null;
+            try {
+                entries = journal.read();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            if (entries != null) {
+                // 只有 DIRTY 记录的文件在写入或放入索引之前中断，删除文件及其临时文件
+                for (String name : journal.getDirtyNames()) {
+                    deleteWithTemps(fileOf(name));
+                }
+                File[] files = new File[entries.size()];
+                long[] sizes = new long[entries.size()];
+                int i = 0;
+                for (Entry<String, CacheJournal.Record> entry : entries.entrySet()) {
+                    files[i] = fileOf(entry.getKey());
+                    sizes[i] = entry.getValue().size;
+                    if (entry.getValue().dueTime > 0) {
+                        expiryIndex.schedule(files[i], entry.getValue().dueTime);
+                    }
+                    i++;
+                }
+                long[] restored = lruIndex.restore(files, sizes);
+                cacheSize.addAndGet(restored[0]);
+                cacheCount.addAndGet((int) restored[1]);
+                redundantOpCount.set(journal.getOpCount() - entries.size());
+                if (!journal.openForAppend()) {
+                    rebuildJournal();
+                }
+            } else {
+                // 扫描目录时不读取文件头部，这些缓存的到期时间未知，仍在读取时删除
+                calculateCacheSizeAndCacheCount();
+                rebuildJournal();
+            }
+        } finally {
+            indexReady.countDown();
+        }
+        if (!expiryIndex.isEmpty()) {
+            startSweeper();
+        }
+    }
+
+    /**
+     * 删除文件以及写入中断时留下的临时文件
+     */
+    private void deleteWithTemps(File file) {
+        file.delete();
+        final String prefix = file.getName() + ".";
+        File[] temps = file.getParentFile().listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                return f.getName().startsWith(prefix) && f.getName().endsWith(".tmp");
+            }
+        });
+        if (temps != null) {
+            for (File tmp : temps) {
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * 启动后台清理，已启动或不需要清理时忽略
+     */
+    private synchronized void startSweeper() {
+        if (sweeper != null || sweepInterval <= 0) {
+            return;
+        }
+        sweeper = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ACache-sweeper-" + cacheDir.getName());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        sweeper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sweep();
+                } catch (Throwable e) {
+                    // 异常会取消之后的清理
+                    e.printStackTrace();
+                }
+            }
+        }, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 删除已经到期的缓存
+     * <p>
+     * 每次从到期索引中取出一批，批次之间让出 CPU，不扫描缓存目录
+     *
+     * @return 删除的文件数
+     */
+    private int sweep() {
+        awaitReady();
+        int swept = 0;
+        List<File> expired;
+        do {
+            expired = expiryIndex.pollExpired(System.currentTimeMillis(), ExpiryIndex.SWEEP_BATCH);
+            for (File file : expired) {
+                // 文件可能刚被重新写入，以头部记录的到期时间为准
+                if (isExpired(file) && evict(file, EvictionReason.EXPIRED)) {
+                    swept++;
+                }
+            }
+            Thread.yield();
+        } while (expired.size() == ExpiryIndex.SWEEP_BATCH);
+        return swept;
+    }
+
+    private boolean isExpired(File file) {
+        RandomAccessFile RAFile = null;
+        try {
+            RAFile = new RandomAccessFile(file, "r");
+            CacheHeader header = CacheHeader.readHeader(RAFile.getChannel());
+            return header == null || header.isDue();
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (RAFile != null) {
+                try {
+                    RAFile.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void awaitReady() {
+        try {
+            indexReady.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 扫描缓存目录，计算 cacheSize和cacheCount
+     */
+    private void calculateCacheSizeAndCacheCount() {
+        List<File> cachedFileList = listCacheFiles();
+        File[] cachedFiles = cachedFileList.toArray(new File[cachedFileList.size()]);
+        // 按最后修改时间排序，保证索引中最久未使用的文件排在最前面
+        final long[] lastModified = new long[cachedFiles.length];
+        Integer[] order = new Integer[cachedFiles.length];
+        for (int i = 0; i < cachedFiles.length; i++) {
+            lastModified[i] = cachedFiles[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                long l = lastModified[lhs];
+                long r = lastModified[rhs];
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+        File[] files = new File[cachedFiles.length];
+        long[] sizes = new long[cachedFiles.length];
+        for (int i = 0; i < order.length; i++) {
+            files[i] = cachedFiles[order[i]];
+            sizes[i] = calculateSize(files[i]);
+        }
+        long[] restored = lruIndex.restore(files, sizes);
+        cacheSize.addAndGet(restored[0]);
+        cacheCount.addAndGet((int) restored[1]);
+    }
+
+    /**
+     * 按索引当前的内容重新生成日志
+     */
+    private void rebuildJournal() {
+        journal.rebuild(new CacheJournal.Snapshot() {
+            @Override
+            public List<Entry<String, CacheJournal.Record>> take() {
+                List<Entry<File, Long>> files = lruIndex.snapshot();
+                List<Entry<String, CacheJournal.Record>> entries = new ArrayList<Entry<String, CacheJournal.Record>>(files.size());
+                for (Entry<File, Long> file : files) {
+                    CacheJournal.Record record = new CacheJournal.Record(file.getValue(), expiryIndex.dueTimeOf(file.getKey()));
+                    entries.add(new AbstractMap.SimpleImmutableEntry<String, CacheJournal.Record>(nameOf(file.getKey()), record));
+                }
+                return entries;
+            }
+
+            @Override
+            public List<String> editing() {
+                List<String> names = new ArrayList<String>();
+                for (File file : editing) {
+                    names.add(nameOf(file));
+                }
+                return names;
+            }
+        });
+        redundantOpCount.set(0);
+    }
+
+    /**
+     * 列出缓存目录中所有的缓存文件（不包括日志和临时文件）
+     */
+    List<File> listCacheFiles() {
+        List<File> files = new ArrayList<File>();
+        listCacheFiles(cacheDir, layout == Layout.HASHED ? 2 : 0, files);
+        return files;
+    }
+
+    private void listCacheFiles(File dir, int depth, List<File> out) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                if (depth > 0) {
+                    listCacheFiles(child, depth - 1, out);
+                }
+            } else if (!CacheJournal.isJournalFile(child) && !child.getName().endsWith(".tmp")) {
+                out.add(child);
+            }
+        }
+    }
+
+    /**
+     * 缓存文件在日志中的名称（相对于缓存目录的路径）
+     */
+    private String nameOf(File file) {
+        return file.getPath().substring(cacheDir.getPath().length() + 1);
+    }
+
+    private File fileOf(String name) {
+        return new File(cacheDir, name);
+    }
+
+    /**
+     * 记录一条日志，多余的记录过多时在后台压缩日志
+     *
+     * @param op        操作类型
+     * @param file      缓存文件
+     * @param size      文件大小
+     * @param redundant 该记录是否使之前的记录变得多余
+     */
+    private void journal(String op, File file, long size, boolean redundant) {
+        journal(op, file, size, 0, redundant);
+    }
+
+    private void journal(String op, File file, long size, long dueTime, boolean redundant) {
+        journal.append(op, nameOf(file), size, dueTime);
+        if (redundant) {
+            compactIfNeeded(1);
+        }
+    }
+
+    /**
+     * 多余的记录过多时在后台压缩日志
+     *
+     * @param redundant 新增的多余记录数
+     */
+    private void compactIfNeeded(int redundant) {
+        if (redundant > 0
+                && redundantOpCount.addAndGet(redundant) >= CacheJournal.REDUNDANT_OP_COMPACT_THRESHOLD
+                && redundantOpCount.get() >= cacheCount.get()
+                && compactScheduled.compareAndSet(false, true)) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        rebuildJournal();
+                    } finally {
+                        compactScheduled.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 开始写入文件前记录一条 DIRTY 日志，写入并放入索引后的 PUT 记录表示写入完成
+     * <p>
+     * 写入期间进程退出时，日志中只有 DIRTY 记录，下次启动时删除该文件，不会残留在索引之外占用空间
+     */
+    void beginWrite(File file) {
+        awaitReady();
+        editing.add(file);
+        journal(CacheJournal.DIRTY, file, 0, true);
+    }
+
+    /**
+     * 写入失败时结束 {@link #beginWrite} 记录的 DIRTY 日志
+     * <p>
+     * 原文件没有被替换时按原来的大小和到期时间重新记录一条 PUT，下次启动时不会被当作写入中断的文件删除；
+     * 原文件已不存在时从索引中移除，记录一条 REMOVE
+     */
+    void abortWrite(File file) {
+        if (file.isFile()) {
+            put(file, expiryIndex.dueTimeOf(file));
+        } else {
+            evict(file, null);
+        }
+    }
+
+    //文件放入程序缓存后，统计缓存总量，总数，文件存放到索引中（按访问顺序排列，便于淘汰最久未使用的文件）
+    //先通过 CAS 预留数量和大小的额度，额度不足时通过 removeNext 淘汰最久未使用的文件后重试
+    //多个线程同时写入时不会超出限制，也不需要在全局锁上排队
+    void put(File file, long dueTime) {
+        awaitReady();
+        long valueSize = calculateSize(file);
+        // 单个文件超过缓存上限，无法放入缓存
+        if (valueSize > sizeLimit) {
+            evict(file, EvictionReason.SIZE);
+            return;
+        }
+        editing.remove(file);
+        // 覆盖已有的缓存时，先释放旧文件的额度
+        long oldSize = lruIndex.remove(file);
+        release(oldSize);
+
+        while (true) {
+            int curCacheCount = cacheCount.get();
+            if (curCacheCount + 1 <= countLimit) {
+                if (cacheCount.compareAndSet(curCacheCount, curCacheCount + 1)) {
+                    break;
+                }
+            } else if (!removeNext(EvictionReason.COUNT)) {
+                // 其他线程已预留额度但还未加入索引，稍后重试
+                Thread.yield();
+            }
+        }
+
+        while (true) {
+            long curCacheSize = cacheSize.get();
+            if (curCacheSize + valueSize <= sizeLimit) {
+                if (cacheSize.compareAndSet(curCacheSize, curCacheSize + valueSize)) {
+                    break;
+                }
+            } else if (!removeNext(EvictionReason.SIZE)) {
+                Thread.yield();
+            }
+        }
+
+        Long currentTime = System.currentTimeMillis();
+        file.setLastModified(currentTime);
+        // 其他线程同时放入了同一个文件时，替换掉的额度在这里释放
+        long replacedSize = lruIndex.put(file, valueSize);
+        release(replacedSize);
+        schedule(file, dueTime);
+        journal(CacheJournal.PUT, file, valueSize, dueTime, oldSize >= 0 || replacedSize >= 0);
+    }
+
+    /**
+     * 记录文件的到期时间
+     *
+     * @param dueTime 到期时间，0 表示永不到期
+     */
+    private void schedule(File file, long dueTime) {
+        expiryIndex.schedule(file, dueTime);
+        if (dueTime > 0) {
+            startSweeper();
+        }
+    }
+
+    /**
+     * 批量放入文件，与逐个放入的结果一致，但只预留一次额度、追加一次日志，也不再逐个修改文件的最后修改时间
+     * <p>
+     * 文件刚刚写入，最后修改时间已经是当前时间；批量的总量超过缓存上限时，与逐个放入一样淘汰较早放入的文件
+     */
+    void putAll(List<File> files, long dueTime) {
+        awaitReady();
+        // 不同的 key 可能对应同一个文件，只保留最后一次
+        LinkedHashSet<File> unique = new LinkedHashSet<File>();
+        for (File file : files) {
+            unique.remove(file);
+            unique.add(file);
+        }
+        File[] batch = unique.toArray(new File[unique.size()]);
+        long[] sizes = new long[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            sizes[i] = calculateSize(batch[i]);
+            editing.remove(batch[i]);
+        }
+        // 从最后放入的文件开始，保留上限以内的文件
+        int count = 0;
+        long total = 0;
+        int first = batch.length;
+        while (first > 0) {
+            long size = sizes[first - 1];
+            if (size <= sizeLimit && (count + 1 > countLimit || total + size > sizeLimit)) {
+                break;
+            }
+            first--;
+            if (size <= sizeLimit) {
+                count++;
+                total += size;
+            }
+        }
+        List<File> added = new ArrayList<File>(count);
+        List<Long> addedSizes = new ArrayList<Long>(count);
+        int redundant = 0;
+        for (int i = 0; i < batch.length; i++) {
+            if (i < first || sizes[i] > sizeLimit) {
+                evict(batch[i], sizes[i] <= sizeLimit && count >= countLimit ? EvictionReason.COUNT : EvictionReason.SIZE);
+                continue;
+            }
+            long oldSize = lruIndex.remove(batch[i]);
+            release(oldSize);
+            if (oldSize >= 0) {
+                redundant++;
+            }
+            added.add(batch[i]);
+            addedSizes.add(sizes[i]);
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+
+        while (true) {
+            int curCacheCount = cacheCount.get();
+            if (curCacheCount + count <= countLimit) {
+                if (cacheCount.compareAndSet(curCacheCount, curCacheCount + count)) {
+                    break;
+                }
+            } else if (!removeNext(EvictionReason.COUNT)) {
+                Thread.yield();
+            }
+        }
+
+        while (true) {
+            long curCacheSize = cacheSize.get();
+            if (curCacheSize + total <= sizeLimit) {
+                if (cacheSize.compareAndSet(curCacheSize, curCacheSize + total)) {
+                    break;
+                }
+            } else if (!removeNext(EvictionReason.SIZE)) {
+                Thread.yield();
+            }
+        }
+
+        List<String> names = new ArrayList<String>(added.size());
+        for (int i = 0; i < added.size(); i++) {
+            long replacedSize = lruIndex.put(added.get(i), addedSizes.get(i));
+            release(replacedSize);
+            if (replacedSize >= 0) {
+                redundant++;
+            }
+            schedule(added.get(i), dueTime);
+            names.add(nameOf(added.get(i)));
+        }
+        journal.appendAll(CacheJournal.PUT, names, addedSizes, dueTime);
+        compactIfNeeded(redundant);
+    }
+
+    /**
+     * 批量更新访问顺序，日志一次性追加
+     */
+    void touchAll(List<File> files) {
+        List<String> names = new ArrayList<String>(files.size());
+        for (File file : files) {
+            if (lruIndex.touch(file)) {
+                names.add(nameOf(file));
+            }
+        }
+        if (!names.isEmpty()) {
+            journal.appendAll(CacheJournal.READ, names, null, 0);
+            compactIfNeeded(names.size());
+        }
+    }
+
+    /**
+     * 释放文件占用的额度
+     *
+     * @param size 文件大小，小于 0 表示文件不在索引中
+     */
+    private void release(long size) {
+        if (size >= 0) {
+            cacheSize.addAndGet(-size);
+            cacheCount.addAndGet(-1);
+        }
+    }
+
+    File get(String key) {
+        File file = newFile(key);
+        Long currentTime = System.currentTimeMillis();
+        file.setLastModified(currentTime);
+        touch(file);
+        return file;
+    }
+
+    void touch(String key) {
+        touch(newFile(key));
+    }
+
+    void touch(File file) {
+        if (lruIndex.touch(file)) {
+            journal(CacheJournal.READ, file, 0, true);
+        }
+    }
+
+    File newFile(String key) {
+        if (layout == Layout.HASHED) {
+            ///data/data/com.yangfuhai.asimplecachedemo/cache/ACache/a9/4a/a94a8fe5ccb19ba61c4c0873d391e987982fbbd3
+            String digest = sha1Hex(key);
+            return new File(new File(new File(cacheDir, digest.substring(0, 2)), digest.substring(2, 4)), digest);
+        }
+        ///data/data/com.yangfuhai.asimplecachedemo/cache/ACache/1727748931
+        return new File(cacheDir, key.hashCode() + "");
+
+    }
+
+    /**
+     * 创建缓存文件所在的分级目录，已创建过的目录不再检查
+     */
+    void ensureParent(File file) {
+        if (layout != Layout.HASHED) {
+            return;
+        }
+        File parent = file.getParentFile();
+        if (!createdDirs.contains(parent)) {
+            if (parent.isDirectory() || parent.mkdirs()) {
+                createdDirs.add(parent);
+            }
+        }
+    }
+
+    /**
+     * 分级目录被外部删除（例如清理缓存）后，已创建的记录不再可信，重新创建目录
+     *
+     * @return 目录是否存在
+     */
+    boolean recreateParent(File file) {
+        if (layout != Layout.HASHED) {
+            return false;
+        }
+        File parent = file.getParentFile();
+        createdDirs.remove(parent);
+        if (parent.mkdirs() || parent.isDirectory()) {
+            createdDirs.add(parent);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 打开文件用于写入，打开失败时重新创建分级目录后再试一次
+     */
+    FileOutputStream openForWrite(File file) throws FileNotFoundException {
+        ensureParent(file);
+        try {
+            return new FileOutputStream(file);
+        } catch (FileNotFoundException e) {
+            if (!recreateParent(file)) {
+                throw e;
+            }
+            return new FileOutputStream(file);
+        }
+    }
+
+    /**
+     * 生成缓存文件的临时文件，与缓存文件位于同一目录，写入完成后通过 {@link #commit} 替换缓存文件
+     */
+    File newTempFile(File file) {
+        return new File(file.getParentFile(), file.getName() + "." + tmpSequence.incrementAndGet() + ".tmp");
+    }
+
+    /**
+     * 用写入完成的临时文件替换缓存文件
+     *
+     * @return 是否替换成功
+     */
+    boolean commit(File tmp, File file) {
+        if (tmp.renameTo(file)) {
+            return true;
+        }
+        // 部分平台上目标文件存在时无法重命名
+        file.delete();
+        return tmp.renameTo(file);
+    }
+
+    /**
+     * 生成缓存文件的头部
+     * <p>
+     * {@link Layout#HASHED} 方式下总是写入带有 key 的头部，读取时用于校验；否则只在设置了到期时间，
+     * 或者数据以头部的魔数开头时写入头部
+     *
+     * @param key           保存的key
+     * @param dueTime       到期时间，0 表示永不到期
+     * @param payloadLength 数据长度，-1 表示未知
+     * @param force         是否总是写入头部
+     * @return 头部，不需要写入时返回 null
+     */
+    byte[] newHeader(String key, long dueTime, long payloadLength, boolean force) {
+        if (layout == Layout.HASHED) {
+            return CacheHeader.newHeader(dueTime, payloadLength, toBytes(key));
+        }
+        if (dueTime > 0 || force) {
+            return CacheHeader.newHeader(dueTime, payloadLength, null);
+        }
+        return null;
+    }
+
+    boolean remove(String key) {
+        return remove(newFile(key));
+    }
+
+    boolean remove(File file) {
+        return evict(file, null);
+    }
+
+    /**
+     * 删除文件，并释放其占用的额度
+     *
+     * @param reason 淘汰的原因，为 null 表示主动删除，不计入统计
+     */
+    private boolean evict(File file, EvictionReason reason) {
+        awaitReady();
+        long size = lruIndex.remove(file);
+        boolean dirty = editing.remove(file);
+        if (reason != null) {
+            stats.recordEviction(reason, size >= 0 ? size : calculateSize(file));
+        }
+        release(size);
+        expiryIndex.remove(file);
+        if (size >= 0 || dirty) {
+            journal(CacheJournal.REMOVE, file, 0, true);
+        }
+        return file.delete();
+    }
+
+    /**
+     * 删除读取时发现已到期的文件
+     * <p>
+     * 索引尚未恢复时交给后台线程删除，不阻塞调用线程（通常是主线程）；删除前再次检查头部，
+     * 期间重新写入的文件不会被删除
+     */
+    void evictExpired(final File file) {
+        if (indexReady.getCount() == 0) {
+            evict(file, EvictionReason.EXPIRED);
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (isExpired(file)) {
+                    evict(file, EvictionReason.EXPIRED);
+                }
+            }
+        });
+    }
+
+    void clear() {
+        awaitReady();
+        lruIndex.clear();
+        expiryIndex.clear();
+        editing.clear();
+        cacheSize.set(0);
+        cacheCount.set(0);
+        for (File f : listCacheFiles()) {
+            f.delete();
+        }
+        rebuildJournal();
+    }
+
+    /**
+     * 移除最久未使用的文件，并释放其占用的额度
+     *
+     * @param reason 淘汰的原因
+     * @return {@code true}: 移除了文件<br>{@code false}: 索引为空
+     */
+    private boolean removeNext(EvictionReason reason) {
+        Entry<File, Long> eldest = lruIndex.pollEldest();
+        if (eldest == null) {
+            return false;
+        }
+        stats.recordEviction(reason, eldest.getValue());
+        eldest.getKey().delete();
+        release(eldest.getValue());
+        expiryIndex.remove(eldest.getKey());
+        journal(CacheJournal.REMOVE, eldest.getKey(), 0, true);
+        return true;
+    }
+
+    private long calculateSize(File file) {
+        return file.length();
+    }
+
+    /**
+     * 计算 key 的 SHA-1 摘要
+     *
+     * @return 40 位小写十六进制字符串
+     */
+    private static String sha1Hex(String key) {
+        return HexUtil.encode(SHA1.get().digest(toBytes(key)));
+    }
+
+    private static byte[] toBytes(String str) {
+        try {
+            return str.getBytes(CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            return str.getBytes();
+        }
+    }
+}
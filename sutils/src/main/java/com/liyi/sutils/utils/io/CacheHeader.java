@@ -0,0 +1,179 @@
+package com.liyi.sutils.utils.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * 缓存文件的头部信息
+ * <p>
+ * 二进制头部：魔数(3) + 版本(1) + 到期时间(8) + 数据长度(8) + 头部校验值(4)<br>
+ * 带有 key 的头部：魔数(3) + 版本(1) + 到期时间(8) + 数据长度(8) + key 长度(4) + 头部校验值(4) + key
+ */
+final class CacheHeader {
+    private static final String CHARSET = "UTF-8";
+    private static final byte[] HEADER_MAGIC = {'A', 'C', 'H'};
+    private static final byte HEADER_VERSION = 1;
+    private static final byte HEADER_VERSION_KEYED = 2;
+    private static final int HEADER_LENGTH = 24;
+    private static final int HEADER_KEYED_LENGTH = 28;
+    private static final int MAX_KEY_LENGTH = 0xFFFF;
+    // 读取头部时读取的字节数，足以容纳旧格式的 ASCII 时间前缀以及大部分的 key
+    private static final int HEADER_PROBE_LENGTH = 256;
+    // 旧格式时间前缀与数据之间的分隔符
+    private static final char SEPARATOR = ' ';
+
+    // 到期时间，0 表示永不到期
+    final long dueTime;
+    // 数据在文件中的起始位置
+    final int offset;
+    // 是否为旧格式的 ASCII 时间前缀
+    final boolean legacy;
+    // 头部中保存的 key，没有保存时为 null
+    final String key;
+
+    CacheHeader(long dueTime, int offset, boolean legacy, String key) {
+        this.dueTime = dueTime;
+        this.offset = offset;
+        this.legacy = legacy;
+        this.key = key;
+    }
+
+    boolean isDue() {
+        return dueTime > 0 && System.currentTimeMillis() > dueTime;
+    }
+
+    /**
+     * 校验文件是否属于该 key
+     */
+    boolean matches(String key) {
+        return this.key == null || this.key.equals(key);
+    }
+
+    /**
+     * 生成二进制头部
+     *
+     * @param dueTime       到期时间，0 表示永不到期
+     * @param payloadLength 数据长度，-1 表示未知
+     * @param key           保存的 key，为 null 时不保存 key
+     * @return 二进制头部
+     */
+    static byte[] newHeader(long dueTime, long payloadLength, byte[] key) {
+        int length = key == null ? HEADER_LENGTH : HEADER_KEYED_LENGTH + key.length;
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.put(HEADER_MAGIC).put(key == null ? HEADER_VERSION : HEADER_VERSION_KEYED).putLong(dueTime).putLong(payloadLength);
+        CRC32 crc = new CRC32();
+        if (key == null) {
+            crc.update(buffer.array(), 0, HEADER_LENGTH - 4);
+            buffer.putInt((int) crc.getValue());
+        } else {
+            buffer.putInt(key.length);
+            crc.update(buffer.array(), 0, HEADER_KEYED_LENGTH - 4);
+            crc.update(key);
+            buffer.putInt((int) crc.getValue()).put(key);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 读取缓存文件的头部，只读取文件开头的少量字节
+     * <p>
+     * 兼容旧格式的 ASCII 时间前缀（"保存时间毫秒数-保存秒数 "），没有头部的数据视为永不到期
+     *
+     * @param channel 缓存文件
+     * @return 头部信息，文件损坏时返回 null
+     * @throws IOException IO 错误时抛出
+     */
+    static CacheHeader readHeader(FileChannel channel) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(HEADER_PROBE_LENGTH);
+        int len = 0;
+        while (probe.hasRemaining()) {
+            int n = channel.read(probe, len);
+            if (n <= 0) {
+                break;
+            }
+            len += n;
+        }
+        byte[] data = probe.array();
+        if (startsWithMagic(data, len)) {
+            // 没有头部的数据不会以魔数开头，头部不完整或校验失败都说明文件已损坏
+            if (len < HEADER_LENGTH) {
+                return null;
+            }
+            long dueTime = probe.getLong(4);
+            long payloadLength = probe.getLong(12);
+            int offset = -1;
+            String key = null;
+            CRC32 crc = new CRC32();
+            if (data[3] == HEADER_VERSION) {
+                crc.update(data, 0, HEADER_LENGTH - 4);
+                if ((int) crc.getValue() == probe.getInt(HEADER_LENGTH - 4)) {
+                    offset = HEADER_LENGTH;
+                }
+            } else if (data[3] == HEADER_VERSION_KEYED && len >= HEADER_KEYED_LENGTH) {
+                int keyLength = probe.getInt(20);
+                if (keyLength >= 0 && keyLength <= MAX_KEY_LENGTH) {
+                    byte[] keyBytes = new byte[keyLength];
+                    if (HEADER_KEYED_LENGTH + keyLength <= len) {
+                        System.arraycopy(data, HEADER_KEYED_LENGTH, keyBytes, 0, keyLength);
+                    } else {
+                        // key 较长，再读取一次
+                        ByteBuffer keyBuffer = ByteBuffer.wrap(keyBytes);
+                        while (keyBuffer.hasRemaining()) {
+                            if (channel.read(keyBuffer, HEADER_KEYED_LENGTH + keyBuffer.position()) <= 0) {
+                                break;
+                            }
+                        }
+                        if (keyBuffer.hasRemaining()) {
+                            return null;
+                        }
+                    }
+                    crc.update(data, 0, HEADER_KEYED_LENGTH - 4);
+                    crc.update(keyBytes);
+                    if ((int) crc.getValue() == probe.getInt(HEADER_KEYED_LENGTH - 4)) {
+                        offset = HEADER_KEYED_LENGTH + keyLength;
+                        key = new String(keyBytes, CHARSET);
+                    }
+                }
+            }
+            if (offset <= 0 || payloadLength >= 0 && payloadLength != channel.size() - offset) {
+                // 数据不完整
+                return null;
+            }
+            return new CacheHeader(dueTime, offset, false, key);
+        }
+        // 旧格式
+        int separator = indexOf(data, len, SEPARATOR);
+        if (len > 15 && data[13] == '-' && separator > 14) {
+            try {
+                long saveTime = Long.parseLong(new String(data, 0, 13, CHARSET));
+                long deleteAfter = Long.parseLong(new String(data, 14, separator - 14, CHARSET));
+                return new CacheHeader(saveTime + deleteAfter * 1000, separator + 1, true, null);
+            } catch (NumberFormatException e) {
+                // 不是时间前缀，按普通数据处理
+            }
+        }
+        return new CacheHeader(0, 0, false, null);
+    }
+
+    /**
+     * 数据是否以头部的魔数开头，这样的数据写入时总是带有头部
+     */
+    static boolean startsWithMagic(byte[] data) {
+        return startsWithMagic(data, data.length);
+    }
+
+    private static boolean startsWithMagic(byte[] data, int len) {
+        return len >= HEADER_MAGIC.length && data[0] == HEADER_MAGIC[0] && data[1] == HEADER_MAGIC[1] && data[2] == HEADER_MAGIC[2];
+    }
+
+    private static int indexOf(byte[] data, int len, char c) {
+        for (int i = 0; i < len; i++) {
+            if (data[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
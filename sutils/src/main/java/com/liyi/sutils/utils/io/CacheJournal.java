@@ -0,0 +1,309 @@
+package com.liyi.sutils.utils.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 缓存日志
+ * <p>
+ * 参考 DiskLruCache 的 journal，以追加的方式记录文件的放入、读取和删除，
+ * 启动时顺序读取一次即可按访问顺序恢复索引，多余的记录过多时重新生成日志。设置了保存时间的缓存，
+ * 放入记录的最后一项为到期时间。写入文件前先记录 DIRTY，放入索引后的 PUT 记录表示写入完成，
+ * 启动时只有 DIRTY 记录的文件会被删除。日志格式：
+ * <pre>
+ *     ACache.journal
+ *     1
+ *
+ *     DIRTY 1727748931
+ *     PUT 1727748931 1024
+ *     PUT 1727748932 2048 1500000000000
+ *     READ 1727748931
+ *     REMOVE 1727748931
+ * </pre>
+ * 记录先放入无锁队列，由后台线程批量写入并刷新，调用线程不需要等待日志的锁和磁盘
+ */
+final class CacheJournal {
+    static final String JOURNAL_FILE = "journal";
+    static final String JOURNAL_FILE_TMP = "journal.tmp";
+    static final String MAGIC = "ACache.journal";
+    static final String VERSION = "1";
+    static final String DIRTY = "DIRTY";
+    static final String PUT = "PUT";
+    static final String READ = "READ";
+    static final String REMOVE = "REMOVE";
+    static final int REDUNDANT_OP_COMPACT_THRESHOLD = 2000;
+    private static final String CHARSET = "UTF-8";
+
+    private final File journalFile;
+    private final File journalFileTmp;
+    private final Executor executor;
+    // 等待写入的记录
+    private final ConcurrentLinkedQueue<String> pendingLines = new ConcurrentLinkedQueue<String>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            // 先清除标记，写入期间新增的记录会再次调度
+            flushScheduled.set(false);
+            writePending();
+        }
+    };
+    private Writer writer;
+    private int opCount;
+    // 上次读取日志时只有 DIRTY 记录的文件名
+    private List<String> dirtyNames = Collections.emptyList();
+
+    /**
+     * @param executor 写入日志的线程
+     */
+    CacheJournal(File dir, Executor executor) {
+        journalFile = new File(dir, JOURNAL_FILE);
+        journalFileTmp = new File(dir, JOURNAL_FILE_TMP);
+        this.executor = executor;
+    }
+
+    static boolean isJournalFile(File file) {
+        return JOURNAL_FILE.equals(file.getName()) || JOURNAL_FILE_TMP.equals(file.getName());
+    }
+
+    /**
+     * 顺序读取日志
+     *
+     * @return 按访问顺序排列的文件名及其记录，没有日志时返回 null
+     * @throws IOException 日志损坏时抛出
+     */
+    synchronized LinkedHashMap<String, Record> read() throws IOException {
+        if (!journalFile.exists()) {
+            return null;
+        }
+        LinkedHashMap<String, Record> entries = new LinkedHashMap<String, Record>(16, 0.75f, true);
+        LinkedHashSet<String> dirty = new LinkedHashSet<String>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), CHARSET), 8192);
+            if (!MAGIC.equals(reader.readLine()) || !VERSION.equals(reader.readLine()) || !"".equals(reader.readLine())) {
+                throw new IOException("unexpected journal header");
+            }
+            int count = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (PUT.equals(parts[0]) && (parts.length == 3 || parts.length == 4)) {
+                    long dueTime = parts.length == 4 ? Long.parseLong(parts[3]) : 0;
+                    entries.put(parts[1], new Record(Long.parseLong(parts[2]), dueTime));
+                    dirty.remove(parts[1]);
+                } else if (DIRTY.equals(parts[0]) && parts.length == 2) {
+                    dirty.add(parts[1]);
+                } else if (READ.equals(parts[0]) && parts.length == 2) {
+                    entries.get(parts[1]);
+                } else if (REMOVE.equals(parts[0]) && parts.length == 2) {
+                    entries.remove(parts[1]);
+                    dirty.remove(parts[1]);
+                } else {
+                    throw new IOException("unexpected journal line: " + line);
+                }
+                count++;
+            }
+            // 写入中断的文件内容未知，不放入索引
+            for (String name : dirty) {
+                entries.remove(name);
+            }
+            opCount = count;
+            dirtyNames = new ArrayList<String>(dirty);
+            return entries;
+        } catch (NumberFormatException e) {
+            throw new IOException("unexpected journal size: " + e.getMessage());
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 上次读取日志时的记录数
+     */
+    synchronized int getOpCount() {
+        return opCount;
+    }
+
+    /**
+     * 上次读取日志时写入中断的文件名
+     */
+    synchronized List<String> getDirtyNames() {
+        return dirtyNames;
+    }
+
+    /**
+     * 以追加的方式打开日志
+     *
+     * @return 是否打开成功
+     */
+    synchronized boolean openForAppend() {
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalFile, true), CHARSET), 8192);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * 放入记录
+     */
+    static final class Record {
+        final long size;
+        // 到期时间，0 表示永不到期
+        final long dueTime;
+
+        Record(long size, long dueTime) {
+            this.size = size;
+            this.dueTime = dueTime;
+        }
+    }
+
+    /**
+     * 日志压缩时获取索引的快照
+     */
+    interface Snapshot {
+        /**
+         * @return 按访问顺序排列的文件名及其记录
+         */
+        List<Entry<String, Record>> take();
+
+        /**
+         * @return 正在写入的文件名，重新生成的日志中保留它们的 DIRTY 记录
+         */
+        List<String> editing();
+    }
+
+    /**
+     * 按索引的内容重新生成日志，先写入临时文件再替换
+     */
+    synchronized void rebuild(Snapshot snapshot) {
+        closeWriter();
+        // 索引先于日志更新，队列中已有的记录都已包含在快照中
+        pendingLines.clear();
+        Writer tmp = null;
+        try {
+            tmp = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalFileTmp), CHARSET), 8192);
+            tmp.write(MAGIC + "\n" + VERSION + "\n\n");
+            for (Entry<String, Record> entry : snapshot.take()) {
+                tmp.write(line(PUT, entry.getKey(), entry.getValue().size, entry.getValue().dueTime));
+            }
+            for (String name : snapshot.editing()) {
+                tmp.write(line(DIRTY, name, 0, 0));
+            }
+            tmp.close();
+            tmp = null;
+            if (!journalFileTmp.renameTo(journalFile)) {
+                throw new IOException("can't rename " + journalFileTmp);
+            }
+            openForAppend();
+        } catch (IOException e) {
+            e.printStackTrace();
+            // 日志不可用时删除，下次启动时扫描缓存目录
+            journalFile.delete();
+        } finally {
+            if (tmp != null) {
+                try {
+                    tmp.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            journalFileTmp.delete();
+        }
+    }
+
+    /**
+     * 追加一条记录，不加锁，由后台线程批量写入
+     */
+    void append(String op, String name, long size, long dueTime) {
+        pendingLines.add(line(op, name, size, dueTime));
+        scheduleFlush();
+    }
+
+    /**
+     * 批量追加记录
+     *
+     * @param sizes 文件大小，只有放入记录需要
+     */
+    void appendAll(String op, List<String> names, List<Long> sizes, long dueTime) {
+        for (int i = 0; i < names.size(); i++) {
+            pendingLines.add(line(op, names.get(i), sizes != null ? sizes.get(i) : 0, dueTime));
+        }
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            executor.execute(flushTask);
+        }
+    }
+
+    /**
+     * 写入队列中的全部记录，只刷新一次
+     */
+    synchronized void writePending() {
+        if (writer == null) {
+            // 日志尚未打开或已经不可用
+            pendingLines.clear();
+            return;
+        }
+        try {
+            String line;
+            while ((line = pendingLines.poll()) != null) {
+                writer.write(line);
+            }
+            writer.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+            // 日志已经不完整，删除后下次启动时扫描缓存目录
+            closeWriter();
+            journalFile.delete();
+        }
+    }
+
+    private static String line(String op, String name, long size, long dueTime) {
+        if (!PUT.equals(op)) {
+            return op + ' ' + name + '\n';
+        }
+        if (dueTime > 0) {
+            return op + ' ' + name + ' ' + size + ' ' + dueTime + '\n';
+        }
+        return op + ' ' + name + ' ' + size + '\n';
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.liyi.sutils.utils.io;
+
+/**
+ * 取消信号
+ * <p>
+ * 用于取消耗时的文件操作（扫描文件夹等），可以在任意线程中调用 {@link #cancel()}
+ */
+public final class CancelSignal {
+    private volatile boolean cancelled;
+
+    /**
+     * 取消操作，正在执行的操作会尽快结束
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * 是否已取消
+     *
+     * @return {@code true}: 已取消<br>{@code false}: 未取消
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,164 @@
+package com.liyi.sutils.utils.io;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 文件夹大小统计工具类
+ * <p>
+ * 缓存每个文件夹中直接包含的文件的大小，并记录文件夹的最后修改时间；再次统计时只需要读取各级文件夹的修改时间，
+ * 只有修改时间发生变化（增加、删除或重命名了其中的文件）的文件夹才会重新遍历
+ * <p>
+ * 注意：原地修改文件的内容不会改变文件夹的修改时间，这种情况需要调用 {@link #invalidate(File)}
+ */
+public final class DirSizeTracker {
+    // 文件系统修改时间的精度，修改时间距离统计时间太近时，同一精度内的修改无法察觉，不使用缓存
+    private static final long MTIME_GRANULARITY = 2000;
+
+    private final Map<String, Node> nodes = new ConcurrentHashMap<String, Node>();
+
+    private DirSizeTracker() {
+    }
+
+    public static DirSizeTracker getInstance() {
+        return DirSizeTrackerHolder.INSTANCE;
+    }
+
+    private static class DirSizeTrackerHolder {
+        private static final DirSizeTracker INSTANCE = new DirSizeTracker();
+    }
+
+    /**
+     * 获取文件夹的大小
+     *
+     * @param dir 文件夹
+     * @return 文件夹中所有文件的字节数
+     */
+    public long getSize(File dir) {
+        return dir == null ? 0 : measure(dir)[0];
+    }
+
+    /**
+     * 获取文件夹中文件的数量
+     *
+     * @param dir 文件夹
+     * @return 文件夹中所有文件的数量（包括子文件夹中的文件）
+     */
+    public long getFileCount(File dir) {
+        return dir == null ? 0 : measure(dir)[1];
+    }
+
+    /**
+     * 清除文件夹及其子文件夹的统计缓存，下次统计时重新遍历
+     * <p>
+     * 删除文件夹或者原地修改了其中文件的内容后调用
+     *
+     * @param dir 文件夹
+     */
+    public void invalidate(File dir) {
+        if (dir == null) {
+            return;
+        }
+        String path = dir.getAbsolutePath();
+        String prefix = path.endsWith(File.separator) ? path : path + File.separator;
+        Iterator<String> it = nodes.keySet().iterator();
+        while (it.hasNext()) {
+            String key = it.next();
+            if (key.equals(path) || key.startsWith(prefix)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 清除所有的统计缓存
+     */
+    public void clear() {
+        nodes.clear();
+    }
+
+    /**
+     * @return 字节数和文件数
+     */
+    private long[] measure(File dir) {
+        long[] total = new long[2];
+        String path = dir.getAbsolutePath();
+        long lastModified = dir.lastModified();
+        if (lastModified == 0 || !dir.isDirectory()) {
+            // 文件夹不存在
+            nodes.remove(path);
+            return total;
+        }
+        Node node = nodes.get(path);
+        if (node == null || !node.isValid(lastModified)) {
+            Node old = node;
+            node = scan(dir, lastModified);
+            nodes.put(path, node);
+            if (old != null) {
+                // 已删除的子文件夹不会再被访问，清除其缓存
+                List<String> current = Arrays.asList(node.childDirs);
+                for (String child : old.childDirs) {
+                    if (!current.contains(child)) {
+                        invalidate(new File(dir, child));
+                    }
+                }
+            }
+        }
+        total[0] = node.fileSize;
+        total[1] = node.fileCount;
+        for (String child : node.childDirs) {
+            long[] sub = measure(new File(dir, child));
+            total[0] += sub[0];
+            total[1] += sub[1];
+        }
+        return total;
+    }
+
+    /**
+     * 遍历文件夹中直接包含的文件和子文件夹
+     */
+    private Node scan(File dir, long lastModified) {
+        long scannedAt = System.currentTimeMillis();
+        long fileSize = 0;
+        long fileCount = 0;
+        List<String> childDirs = new ArrayList<String>();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    childDirs.add(file.getName());
+                } else {
+                    fileSize += file.length();
+                    fileCount++;
+                }
+            }
+        }
+        return new Node(lastModified, scannedAt, fileSize, fileCount, childDirs.toArray(new String[childDirs.size()]));
+    }
+
+    private static class Node {
+        final long lastModified;
+        final long scannedAt;
+        // 直接包含的文件的字节数和数量，不包括子文件夹
+        final long fileSize;
+        final long fileCount;
+        final String[] childDirs;
+
+        Node(long lastModified, long scannedAt, long fileSize, long fileCount, String[] childDirs) {
+            this.lastModified = lastModified;
+            this.scannedAt = scannedAt;
+            this.fileSize = fileSize;
+            this.fileCount = fileCount;
+            this.childDirs = childDirs;
+        }
+
+        boolean isValid(long currentLastModified) {
+            return currentLastModified == lastModified && scannedAt - lastModified >= MTIME_GRANULARITY;
+        }
+    }
+}
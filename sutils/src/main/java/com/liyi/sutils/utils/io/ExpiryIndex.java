@@ -0,0 +1,103 @@
+package com.liyi.sutils.utils.io;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+
+/**
+ * 到期索引
+ * <p>
+ * 按到期时间排列的小顶堆，取出最早到期的文件为 O(log n)，后台清理时不需要扫描缓存目录
+ */
+final class ExpiryIndex {
+    // 每批清理的文件数
+    static final int SWEEP_BATCH = 64;
+
+    // 按到期时间排列的小顶堆，文件重新放入或删除后，堆中旧的记录不立即删除，取出时与 dueTimes 比较后丢弃
+    private final PriorityQueue<Expiry> heap = new PriorityQueue<Expiry>();
+    private final HashMap<File, Long> dueTimes = new HashMap<File, Long>();
+
+    /**
+     * @param dueTime 到期时间，小于等于 0 表示永不到期
+     */
+    synchronized void schedule(File file, long dueTime) {
+        if (dueTime <= 0) {
+            remove(file);
+            return;
+        }
+        Long old = dueTimes.put(file, dueTime);
+        if (old == null || old != dueTime) {
+            heap.add(new Expiry(file, dueTime));
+            compactIfNeeded();
+        }
+    }
+
+    synchronized void remove(File file) {
+        if (dueTimes.remove(file) != null) {
+            compactIfNeeded();
+        }
+    }
+
+    synchronized void clear() {
+        heap.clear();
+        dueTimes.clear();
+    }
+
+    synchronized boolean isEmpty() {
+        return dueTimes.isEmpty();
+    }
+
+    synchronized long dueTimeOf(File file) {
+        Long dueTime = dueTimes.get(file);
+        return dueTime != null ? dueTime : 0;
+    }
+
+    /**
+     * 取出已经到期的文件
+     *
+     * @param now 当前时间
+     * @param max 最多取出的数量
+     */
+    synchronized List<File> pollExpired(long now, int max) {
+        List<File> expired = new ArrayList<File>();
+        while (expired.size() < max && !heap.isEmpty() && heap.peek().dueTime < now) {
+            Expiry expiry = heap.poll();
+            Long dueTime = dueTimes.get(expiry.file);
+            if (dueTime != null && dueTime == expiry.dueTime) {
+                dueTimes.remove(expiry.file);
+                expired.add(expiry.file);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * 旧的记录过多时重新建堆
+     */
+    private void compactIfNeeded() {
+        if (heap.size() > 64 && heap.size() > dueTimes.size() * 2) {
+            heap.clear();
+            for (Entry<File, Long> entry : dueTimes.entrySet()) {
+                heap.add(new Expiry(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    private static class Expiry implements Comparable<Expiry> {
+        final File file;
+        final long dueTime;
+
+        Expiry(File file, long dueTime) {
+            this.file = file;
+            this.dueTime = dueTime;
+        }
+
+        @Override
+        public int compareTo(Expiry another) {
+            return dueTime < another.dueTime ? -1 : (dueTime == another.dueTime ? 0 : 1);
+        }
+    }
+}
@@ -31,6 +31,22 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -38,6 +54,12 @@ import java.io.Serializable;
  */
 public class FileUtil {
     private final String TAG = FileUtil.class.getSimpleName();
+    // 单次 transferTo 传输的字节数
+    private static final long TRANSFER_CHUNK_SIZE = 8 * 1024 * 1024;
+    // transferTo 不可用时使用的直接缓冲区大小
+    private static final int COPY_BUFFER_SIZE = 256 * 1024;
+    // 扫描文件夹时的结束标记，按引用比较
+    private static final File SCAN_END = new File("");
 
     private FileUtil() {
     }
@@ -425,43 +447,34 @@ public class FileUtil {
      * @param newPath 文件被拷贝后的所在路径
      */
     public void copyFile(@NonNull String oldPath, @NonNull String newPath) {
-        int bytesum = 0;
-        int byteread = 0;
+        copyFile(oldPath, newPath, false, null);
+    }
+
+    /**
+     * 拷贝文件到指定路径
+     * <p>
+     * 通过 FileChannel.transferTo 在内核中直接拷贝，不经过 java 堆；系统不支持时改用直接缓冲区拷贝
+     *
+     * @param oldPath           被拷贝文件的原始路径
+     * @param newPath           文件被拷贝后的所在路径
+     * @param preserveTimestamp 是否保留文件的最后修改时间
+     * @param listener          拷贝进度的监听，可以为 null
+     * @return {@code true}: 拷贝成功<br>{@code false}: 拷贝失败
+     */
+    public boolean copyFile(@NonNull String oldPath, @NonNull String newPath, boolean preserveTimestamp, OnCopyProgressListener listener) {
         File oldfile = new File(oldPath);
-        FileInputStream fis = null;
-        FileOutputStream fos = null;
-        if (oldfile.exists()) {
-            try {
-                fis = new FileInputStream(oldPath);
-                fos = new FileOutputStream(newPath);
-                byte[] buffer = new byte[1024];
-                while ((byteread = fis.read(buffer)) != -1) {
-                    bytesum += byteread;
-                    fos.write(buffer, 0, byteread);
-                }
-                LogUtil.d(TAG, "copy file success, the total size of the file is ========> " + bytesum + " byte");
-            } catch (IOException e) {
-                LogUtil.e(TAG, "Copy file error ========> " + e.toString());
-                e.printStackTrace();
-            } finally {
-                if (fis != null) {
-                    try {
-                        fis.close();
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }
-                if (fos != null) {
-                    try {
-                        fos.flush();
-                        fos.close();
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }
-            }
-        } else {
+        if (!oldfile.isFile()) {
             LogUtil.e(TAG, "Copy file error ========> source file does not exist!");
+            return false;
+        }
+        try {
+            long bytesum = copyFileContent(oldfile, new File(newPath), preserveTimestamp, listener);
+            LogUtil.d(TAG, "copy file success, the total size of the file is ========> " + bytesum + " byte");
+            return true;
+        } catch (IOException e) {
+            LogUtil.e(TAG, "Copy file error ========> " + e.toString());
+            e.printStackTrace();
+            return false;
         }
     }
 
@@ -472,51 +485,301 @@ public class FileUtil {
      * @param newPath 文件夹被拷贝后的所在路径
      */
     public void copyDir(@NonNull String oldPath, @NonNull String newPath) {
+        copyDir(oldPath, newPath, false, null);
+    }
+
+    /**
+     * 拷贝文件夹内容到指定位置
+     *
+     * @param oldPath           被拷贝文件夹的原始路径
+     * @param newPath           文件夹被拷贝后的所在路径
+     * @param preserveTimestamp 是否保留文件的最后修改时间
+     * @param listener          拷贝进度的监听，按文件回调，可以为 null
+     * @return {@code true}: 全部拷贝成功<br>{@code false}: 有文件拷贝失败
+     */
+    public boolean copyDir(@NonNull String oldPath, @NonNull String newPath, boolean preserveTimestamp, OnCopyProgressListener listener) {
+        return copyDir(new File(oldPath), new File(newPath), preserveTimestamp, listener);
+    }
+
+    private boolean copyDir(File oldDir, File newDir, boolean preserveTimestamp, OnCopyProgressListener listener) {
+        newDir.mkdirs();
+        File[] files = oldDir.listFiles();
+        if (files == null) {
+            LogUtil.e(TAG, "Copy dir error ========> can't list " + oldDir);
+            return false;
+        }
+        boolean isSuccess = true;
+        for (File temp : files) {
+            File target = new File(newDir, temp.getName());
+            if (temp.isFile()) {
+                try {
+                    copyFileContent(temp, target, preserveTimestamp, listener);
+                } catch (IOException e) {
+                    LogUtil.e(TAG, "Copy file error ========> " + e.toString());
+                    e.printStackTrace();
+                    isSuccess = false;
+                }
+            } else if (!copyDir(temp, target, preserveTimestamp, listener)) {
+                isSuccess = false;
+            }
+        }
+        if (preserveTimestamp) {
+            newDir.setLastModified(oldDir.lastModified());
+        }
+        return isSuccess;
+    }
+
+    /**
+     * 并行拷贝文件夹内容到指定位置
+     *
+     * @param oldPath 被拷贝文件夹的原始路径
+     * @param newPath 文件夹被拷贝后的所在路径
+     * @return 拷贝结果
+     */
+    public CopyResult copyDirParallel(@NonNull String oldPath, @NonNull String newPath) {
+        int parallelism = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        return copyDirParallel(oldPath, newPath, parallelism, false, null);
+    }
+
+    /**
+     * 并行拷贝文件夹内容到指定位置
+     * <p>
+     * 只遍历一次目录树，先创建目标文件夹，再把其中的文件交给固定数量的线程拷贝，适合拷贝大量的小文件；
+     * 拷贝失败的文件不会中断其他文件的拷贝，记录在返回的结果中
+     *
+     * @param oldPath           被拷贝文件夹的原始路径
+     * @param newPath           文件夹被拷贝后的所在路径
+     * @param parallelism       同时拷贝的文件数
+     * @param preserveTimestamp 是否保留文件以及文件夹的最后修改时间
+     * @param listener          拷贝进度的监听，按文件回调，会在多个线程中同时回调，可以为 null
+     * @return 拷贝结果
+     */
+    public CopyResult copyDirParallel(@NonNull String oldPath, @NonNull String newPath, int parallelism,
+                                      final boolean preserveTimestamp, final OnCopyProgressListener listener) {
+        final CopyResult result = new CopyResult();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(Math.max(1, parallelism), Math.max(1, parallelism),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        // 与 futures 一一对应的原始文件
+        List<File> sources = new ArrayList<File>();
+        // 文件夹的最后修改时间在其中的文件拷贝完成后才能设置
+        List<File[]> dirs = new ArrayList<File[]>();
+        LinkedList<File[]> pending = new LinkedList<File[]>();
+        pending.add(new File[]{new File(oldPath), new File(newPath)});
         try {
-            (new File(newPath)).mkdirs();
-            File oldDir = new File(oldPath);
-            String[] fileNameList = oldDir.list();
-            File temp = null;
-            for (int i = 0; i < fileNameList.length; i++) {
-                if (oldPath.endsWith(File.separator)) {
-                    temp = new File(oldPath + fileNameList[i]);
-                } else {
-                    temp = new File(oldPath + File.separator + fileNameList[i]);
+            while (!pending.isEmpty()) {
+                File[] pair = pending.removeFirst();
+                File oldDir = pair[0];
+                File newDir = pair[1];
+                if (!newDir.isDirectory() && !newDir.mkdirs()) {
+                    result.addFailure(oldDir, new IOException("can't make dirs in " + newDir));
+                    continue;
                 }
-                if (temp.isFile()) {
-                    FileInputStream input = new FileInputStream(temp);
-                    FileOutputStream output = null;
-                    if (newPath.endsWith(File.separator)) {
-                        output = new FileOutputStream(newPath + (temp.getName()).toString());
+                File[] files = oldDir.listFiles();
+                if (files == null) {
+                    result.addFailure(oldDir, new IOException("can't list " + oldDir));
+                    continue;
+                }
+                dirs.add(pair);
+                for (final File temp : files) {
+                    final File target = new File(newDir, temp.getName());
+                    if (temp.isDirectory()) {
+                        pending.add(new File[]{temp, target});
                     } else {
-                        output = new FileOutputStream(newPath + File.separator + (temp.getName()).toString());
+                        futures.add(executor.submit(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    result.addFile(copyFileContent(temp, target, preserveTimestamp, listener));
+                                } catch (IOException e) {
+                                    result.addFailure(temp, e);
+                                } catch (RuntimeException e) {
+                                    // 单个文件出错（例如监听抛出异常）只记录该文件，不影响其他文件
+                                    result.addFailure(temp, new IOException(e));
+                                }
+                            }
+                        }));
+                        sources.add(temp);
                     }
-                    byte[] b = new byte[1024];
-                    int len;
-                    while ((len = input.read(b)) != -1) {
-                        output.write(b, 0, len);
+                }
+            }
+        } finally {
+            // 已提交的文件全部结束后才关闭线程池，不会中断正在拷贝的文件
+            awaitCopies(futures, sources, result);
+            executor.shutdown();
+        }
+        if (preserveTimestamp) {
+            for (int i = dirs.size() - 1; i >= 0; i--) {
+                dirs.get(i)[1].setLastModified(dirs.get(i)[0].lastModified());
+            }
+        }
+        if (result.isSuccess()) {
+            LogUtil.d(TAG, "copy dir success, " + result.getFileCount() + " files, " + result.getByteCount() + " byte");
+        } else {
+            LogUtil.e(TAG, "Copy dir error ========> " + result.getFailures().size() + " failures");
+        }
+        return result;
+    }
+
+    /**
+     * 等待全部拷贝任务结束
+     * <p>
+     * 等待期间被中断时继续等待，结束后恢复线程的中断状态
+     */
+    private static void awaitCopies(List<Future<?>> futures, List<File> sources, CopyResult result) {
+        boolean interrupted = false;
+        for (int i = 0; i < futures.size(); i++) {
+            while (true) {
+                try {
+                    futures.get(i).get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    result.addFailure(sources.get(i), cause instanceof IOException ? (IOException) cause : new IOException(cause));
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 拷贝单个文件的内容
+     *
+     * @return 拷贝的字节数
+     */
+    private long copyFileContent(File oldFile, File newFile, boolean preserveTimestamp, OnCopyProgressListener listener) throws IOException {
+        FileInputStream fis = null;
+        FileOutputStream fos = null;
+        long copied = 0;
+        try {
+            fis = new FileInputStream(oldFile);
+            fos = new FileOutputStream(newFile);
+            FileChannel in = fis.getChannel();
+            FileChannel out = fos.getChannel();
+            long total = in.size();
+            if (listener != null) {
+                listener.onProgress(oldFile, 0, total);
+            }
+            try {
+                // 分段传输，便于回调进度，也避免部分系统单次传输不能超过 2G 的限制
+                while (copied < total) {
+                    long n = in.transferTo(copied, Math.min(TRANSFER_CHUNK_SIZE, total - copied), out);
+                    if (n <= 0) {
+                        break;
                     }
-                    output.flush();
-                    output.close();
-                    input.close();
-                } else {
-                    String op = null, np = null;
-                    if (oldPath.endsWith(File.separator)) {
-                        op = oldPath + fileNameList[i];
-                    } else {
-                        op = oldPath + File.separator + fileNameList[i];
+                    copied += n;
+                    if (listener != null) {
+                        listener.onProgress(oldFile, copied, total);
                     }
-                    if (newPath.endsWith(File.separator)) {
-                        np = newPath + fileNameList[i];
-                    } else {
-                        np = newPath + File.separator + fileNameList[i];
+                }
+            } catch (IOException e) {
+                // 部分系统的 transferTo 不支持当前文件，从已拷贝的位置继续用缓冲区拷贝
+                LogUtil.d(TAG, "transferTo is not supported, fall back to buffer copy ========> " + e.toString());
+            }
+            if (copied < total) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+                in.position(copied);
+                out.position(copied);
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        copied += out.write(buffer);
+                    }
+                    buffer.clear();
+                    if (listener != null) {
+                        listener.onProgress(oldFile, copied, total);
                     }
-                    copyDir(op, np);
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            // 目标文件原来更大时，截掉多余的内容
+            out.truncate(copied);
+        } finally {
+            if (fis != null) {
+                try {
+                    fis.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (fos != null) {
+                try {
+                    fos.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        if (preserveTimestamp) {
+            newFile.setLastModified(oldFile.lastModified());
         }
+        return copied;
+    }
+
+    /**
+     * 并行拷贝文件夹的结果
+     */
+    public static final class CopyResult {
+        private final AtomicInteger fileCount = new AtomicInteger();
+        private final AtomicLong byteCount = new AtomicLong();
+        private final Map<String, IOException> failures = new ConcurrentHashMap<String, IOException>();
+
+        private void addFile(long bytes) {
+            fileCount.incrementAndGet();
+            byteCount.addAndGet(bytes);
+        }
+
+        private void addFailure(File file, IOException e) {
+            failures.put(file.getPath(), e);
+        }
+
+        /**
+         * 是否全部拷贝成功
+         */
+        public boolean isSuccess() {
+            return failures.isEmpty();
+        }
+
+        /**
+         * 拷贝成功的文件数
+         */
+        public int getFileCount() {
+            return fileCount.get();
+        }
+
+        /**
+         * 拷贝的总字节数
+         */
+        public long getByteCount() {
+            return byteCount.get();
+        }
+
+        /**
+         * 拷贝失败的文件或文件夹
+         *
+         * @return 按路径排序，key 为原始路径，value 为失败的原因
+         */
+        public Map<String, IOException> getFailures() {
+            return new TreeMap<String, IOException>(failures);
+        }
+    }
+
+    /**
+     * 拷贝进度的监听
+     */
+    public interface OnCopyProgressListener {
+        /**
+         * 拷贝进度发生变化
+         *
+         * @param file   正在拷贝的文件
+         * @param copied 已拷贝的字节数
+         * @param total  文件的总字节数
+         */
+        void onProgress(File file, long copied, long total);
     }
 
     /**
@@ -536,14 +799,16 @@ public class FileUtil {
         if (!dirFile.exists() || !dirFile.isDirectory()) {
             return count;
         }
+        if (isAll) {
+            return (int) scan(dirFile).getFileCount();
+        }
         File[] files = dirFile.listFiles();
+        if (files == null) {
+            return count;
+        }
         for (int i = 0; i < files.length; i++) {
             if (files[i].isFile()) {
                 count += 1;
-            } else {
-                if (isAll) {
-                    getFileCount(files[i].getAbsolutePath(), true);
-                }
             }
         }
         return count;
@@ -710,16 +975,8 @@ public class FileUtil {
      */
     public long getSingleFileSize(File file) {
         if (file == null) return 0;
-        long size = 0;
-        try {
-            if (file.exists()) {
-                FileInputStream fis = new FileInputStream(file);
-                size = fis.available();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return size;
+        // 只读取文件的元数据，不打开文件
+        return file.length();
     }
 
     /**
@@ -740,16 +997,166 @@ public class FileUtil {
      */
     public long getFileDirSize(File dir) {
         if (dir == null) return 0;
+        return scan(dir).getSize();
+    }
+
+    /**
+     * 扫描文件夹，一次遍历同时统计大小、文件数和文件夹数
+     *
+     * @param dir 文件夹
+     * @return 扫描结果
+     */
+    public ScanResult scan(File dir) {
+        return scan(dir, 1, null);
+    }
+
+    /**
+     * 扫描文件夹，一次遍历同时统计大小、文件数和文件夹数
+     * <p>
+     * 只读取文件的元数据，不打开文件；parallelism 大于 1 时由多个线程同时遍历不同的子文件夹
+     *
+     * @param dir         文件夹
+     * @param parallelism 同时遍历的线程数，小于等于 1 时在当前线程中遍历
+     * @param signal      取消信号，可以为 null；取消后返回已统计的部分
+     * @return 扫描结果
+     */
+    public ScanResult scan(File dir, int parallelism, CancelSignal signal) {
+        final ScanResult result = new ScanResult();
+        if (dir == null || !dir.isDirectory()) {
+            return result;
+        }
+        final CancelSignal cancel = signal != null ? signal : new CancelSignal();
+        final LinkedBlockingDeque<File> dirs = new LinkedBlockingDeque<File>();
+        // 已放入队列但还未遍历完的文件夹数，为 0 时扫描结束
+        final AtomicInteger pending = new AtomicInteger(1);
+        dirs.add(dir);
+        if (parallelism <= 1) {
+            scanDirs(dirs, pending, cancel, result);
+        } else {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism,
+                    0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+            List<Future<?>> futures = new ArrayList<Future<?>>(parallelism);
+            for (int i = 0; i < parallelism; i++) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        scanDirs(dirs, pending, cancel, result);
+                    }
+                }));
+            }
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel.cancel();
+            } catch (ExecutionException e) {
+                LogUtil.e(TAG, "Failed to scan dir ========> " + e.getCause());
+                cancel.cancel();
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        result.cancelled = cancel.isCancelled();
+        return result;
+    }
+
+    /**
+     * 从队列中取出文件夹遍历，子文件夹放回队列，直到全部遍历完或被取消
+     * <p>
+     * 线程退出时放入结束标记，唤醒等待队列的其他线程，它们取到结束标记后同样退出
+     */
+    private void scanDirs(LinkedBlockingDeque<File> dirs, AtomicInteger pending, CancelSignal cancel, ScanResult result) {
         long size = 0;
-        File flist[] = dir.listFiles();
-        for (int i = 0; i < flist.length; i++) {
-            if (flist[i].isDirectory()) {
-                size = size + getFileDirSize(flist[i]);
-            } else {
-                size = size + getSingleFileSize(flist[i]);
+        long fileCount = 0;
+        long dirCount = 0;
+        try {
+            while (!cancel.isCancelled()) {
+                // 其他线程可能正在遍历，稍后会放入新的子文件夹或结束标记
+                File dir = dirs.takeLast();
+                if (dir == SCAN_END) {
+                    break;
+                }
+                boolean finished;
+                try {
+                    File[] files = dir.listFiles();
+                    if (files != null) {
+                        for (File file : files) {
+                            if (file.isDirectory()) {
+                                dirCount++;
+                                pending.incrementAndGet();
+                                dirs.addLast(file);
+                            } else {
+                                fileCount++;
+                                size += file.length();
+                            }
+                        }
+                    }
+                } finally {
+                    finished = pending.decrementAndGet() == 0;
+                }
+                if (finished) {
+                    break;
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel.cancel();
+        } catch (RuntimeException e) {
+            cancel.cancel();
+            throw e;
+        } catch (Error e) {
+            cancel.cancel();
+            throw e;
+        } finally {
+            dirs.addLast(SCAN_END);
+            result.add(size, fileCount, dirCount);
+        }
+    }
+
+    /**
+     * 扫描文件夹的结果
+     */
+    public static final class ScanResult {
+        private long size;
+        private long fileCount;
+        private long dirCount;
+        private boolean cancelled;
+
+        private synchronized void add(long size, long fileCount, long dirCount) {
+            this.size += size;
+            this.fileCount += fileCount;
+            this.dirCount += dirCount;
+        }
+
+        /**
+         * 所有文件的字节数
+         */
+        public synchronized long getSize() {
+            return size;
+        }
+
+        /**
+         * 文件数（包括所有子文件夹中的文件）
+         */
+        public synchronized long getFileCount() {
+            return fileCount;
+        }
+
+        /**
+         * 子文件夹数（不包括被扫描的文件夹本身）
+         */
+        public synchronized long getDirCount() {
+            return dirCount;
+        }
+
+        /**
+         * 扫描是否被取消，取消时其他结果只包括已统计的部分
+         */
+        public synchronized boolean isCancelled() {
+            return cancelled;
         }
-        return size;
     }
 
     /***********************************************************************************************
@@ -0,0 +1,253 @@
+package com.liyi.sutils.utils.io;
+
+import java.io.File;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按访问顺序排列的缓存索引
+ * <p>
+ * 每一段都是基于 accessOrder 的 LinkedHashMap，最久未使用的文件位于链表头部，提升（访问）为 O(1)；
+ * 文件按 hash 分到不同的段中，每段单独加锁，淘汰时比较各段头部的访问序号，为 O(段数)
+ */
+final class LruIndex {
+    private final Segment[] segments;
+    private final int segmentMask;
+    // 访问序号，数值越小表示越久未使用
+    private final AtomicLong clock = new AtomicLong();
+
+    LruIndex(int concurrencyLevel) {
+        int size = 1;
+        while (size < concurrencyLevel) {
+            size <<= 1;
+        }
+        segments = new Segment[size];
+        for (int i = 0; i < size; i++) {
+            segments[i] = new Segment();
+        }
+        segmentMask = size - 1;
+    }
+
+    private Segment segmentFor(File file) {
+        int h = file.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & segmentMask];
+    }
+
+    /**
+     * 添加文件或更新文件大小，并将其提升为最近使用
+     *
+     * @return 被替换的文件大小，文件原先不在索引中时返回 -1；调用方需要释放其额度
+     */
+    long put(File file, long size) {
+        return segmentFor(file).put(file, size, clock.incrementAndGet());
+    }
+
+    /**
+     * 将文件提升为最近使用
+     *
+     * @return 文件是否在索引中
+     */
+    boolean touch(File file) {
+        return segmentFor(file).touch(file, clock.incrementAndGet());
+    }
+
+    /**
+     * 移除文件
+     *
+     * @return 文件大小，不在索引中时返回 -1
+     */
+    long remove(File file) {
+        return segmentFor(file).remove(file);
+    }
+
+    /**
+     * 取出并移除最久未使用的文件
+     *
+     * @return 最久未使用的文件及其大小，索引为空时返回 null
+     */
+    Entry<File, Long> pollEldest() {
+        while (true) {
+            Segment eldestSegment = null;
+            long eldestTick = Long.MAX_VALUE;
+            for (Segment segment : segments) {
+                long tick = segment.eldestTick();
+                if (tick < eldestTick) {
+                    eldestTick = tick;
+                    eldestSegment = segment;
+                }
+            }
+            if (eldestSegment == null) {
+                return null;
+            }
+            Entry<File, Long> eldest = eldestSegment.pollEldest();
+            // 比较期间该段被其他线程清空，重新查找
+            if (eldest != null) {
+                return eldest;
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        for (Segment segment : segments) {
+            if (segment.eldestTick() != Long.MAX_VALUE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 获取索引的快照
+     *
+     * @return 按访问顺序排列的文件及其大小，最久未使用的排在最前面
+     */
+    List<Entry<File, Long>> snapshot() {
+        List<Entry<File, Node>> nodes = new ArrayList<Entry<File, Node>>();
+        for (Segment segment : segments) {
+            segment.snapshot(nodes);
+        }
+        Collections.sort(nodes, new Comparator<Entry<File, Node>>() {
+            @Override
+            public int compare(Entry<File, Node> lhs, Entry<File, Node> rhs) {
+                long l = lhs.getValue().tick;
+                long r = rhs.getValue().tick;
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+        List<Entry<File, Long>> result = new ArrayList<Entry<File, Long>>(nodes.size());
+        for (Entry<File, Node> node : nodes) {
+            result.add(new AbstractMap.SimpleImmutableEntry<File, Long>(node.getKey(), node.getValue().size));
+        }
+        return result;
+    }
+
+    /**
+     * 用扫描缓存目录得到的文件恢复索引
+     * <p>
+     * 扫描期间新放入的文件比扫描到的文件更新，所以扫描到的文件使用负的访问序号排在前面
+     *
+     * @param files 按最后修改时间升序排列的文件
+     * @param sizes 文件大小
+     * @return 新加入索引的文件总大小及数量
+     */
+    long[] restore(File[] files, long[] sizes) {
+        Map<Segment, LinkedHashMap<File, Node>> restored = new HashMap<Segment, LinkedHashMap<File, Node>>();
+        for (int i = 0; i < files.length; i++) {
+            Segment segment = segmentFor(files[i]);
+            LinkedHashMap<File, Node> nodes = restored.get(segment);
+            if (nodes == null) {
+                nodes = new LinkedHashMap<File, Node>();
+                restored.put(segment, nodes);
+            }
+            nodes.put(files[i], new Node(sizes[i], i - files.length));
+        }
+        long addedSize = 0;
+        long addedCount = 0;
+        for (Entry<Segment, LinkedHashMap<File, Node>> entry : restored.entrySet()) {
+            for (Node node : entry.getKey().restore(entry.getValue())) {
+                addedSize += node.size;
+                addedCount++;
+            }
+        }
+        return new long[]{addedSize, addedCount};
+    }
+
+    private static class Node {
+        final long size;
+        long tick;
+
+        Node(long size, long tick) {
+            this.size = size;
+            this.tick = tick;
+        }
+    }
+
+    private static class Segment {
+        private final LinkedHashMap<File, Node> entries = new LinkedHashMap<File, Node>(16, 0.75f, true);
+
+        /**
+         * @return 被替换的文件大小，文件原先不在段中时返回 -1
+         */
+        synchronized long put(File file, long size, long tick) {
+            Node old = entries.put(file, new Node(size, tick));
+            return old != null ? old.size : -1;
+        }
+
+        synchronized boolean touch(File file, long tick) {
+            Node node = entries.get(file);
+            if (node != null) {
+                node.tick = tick;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void snapshot(List<Entry<File, Node>> out) {
+            for (Entry<File, Node> entry : entries.entrySet()) {
+                out.add(new AbstractMap.SimpleImmutableEntry<File, Node>(entry.getKey(), new Node(entry.getValue().size, entry.getValue().tick)));
+            }
+        }
+
+        synchronized long remove(File file) {
+            Node node = entries.remove(file);
+            return node != null ? node.size : -1;
+        }
+
+        synchronized long eldestTick() {
+            if (entries.isEmpty()) {
+                return Long.MAX_VALUE;
+            }
+            return entries.values().iterator().next().tick;
+        }
+
+        synchronized Entry<File, Long> pollEldest() {
+            if (entries.isEmpty()) {
+                return null;
+            }
+            Iterator<Entry<File, Node>> it = entries.entrySet().iterator();
+            Entry<File, Node> eldest = it.next();
+            Entry<File, Long> result = new AbstractMap.SimpleImmutableEntry<File, Long>(eldest.getKey(), eldest.getValue().size);
+            it.remove();
+            return result;
+        }
+
+        synchronized void clear() {
+            entries.clear();
+        }
+
+        /**
+         * 扫描到的文件比段内已有的文件都旧，插入到链表头部
+         *
+         * @return 新加入的文件
+         */
+        synchronized List<Node> restore(LinkedHashMap<File, Node> nodes) {
+            List<Node> added = new ArrayList<Node>();
+            LinkedHashMap<File, Node> current = new LinkedHashMap<File, Node>(entries);
+            entries.clear();
+            for (Entry<File, Node> entry : nodes.entrySet()) {
+                if (!current.containsKey(entry.getKey())) {
+                    entries.put(entry.getKey(), entry.getValue());
+                    added.add(entry.getValue());
+                }
+            }
+            entries.putAll(current);
+            return added;
+        }
+    }
+}
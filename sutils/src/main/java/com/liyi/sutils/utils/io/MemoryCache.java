@@ -0,0 +1,115 @@
+package com.liyi.sutils.utils.io;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存缓存
+ * <p>
+ * 按字节数计算权重的 LRU，放在磁盘缓存前面，数据发生变化时由 put、remove、clear 使其失效
+ */
+final class MemoryCache {
+    private final long maxSize;
+    private final LinkedHashMap<String, MemoryEntry> entries = new LinkedHashMap<String, MemoryEntry>(16, 0.75f, true);
+    private long size;
+    // 失效次数，从磁盘读取期间如果发生了失效，读取到的数据不能再放入内存缓存
+    private final AtomicLong invalidations = new AtomicLong();
+    final AtomicLong hitCount = new AtomicLong();
+    final AtomicLong missCount = new AtomicLong();
+
+    MemoryCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 从磁盘读取数据前获取失效标记
+     */
+    long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * 获取缓存的数据
+     *
+     * @param key  保存的key
+     * @param type 数据类型，类型不一致时视为未命中
+     * @return 缓存的数据
+     */
+    synchronized Object get(String key, Class<?> type) {
+        return get(key, type, null);
+    }
+
+    /**
+     * @param dueTime 不为 null 时，命中的数据的到期时间写入 dueTime[0]
+     */
+    synchronized Object get(String key, Class<?> type, long[] dueTime) {
+        MemoryEntry entry = entries.get(key);
+        if (entry != null && entry.dueTime > 0 && System.currentTimeMillis() > entry.dueTime) {
+            removeEntry(key);
+            entry = null;
+        }
+        if (entry == null || !type.isInstance(entry.value)) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        if (dueTime != null) {
+            dueTime[0] = entry.dueTime;
+        }
+        return entry.value;
+    }
+
+    /**
+     * 保存从磁盘读取到的数据
+     *
+     * @param key     保存的key
+     * @param value   数据
+     * @param weight  数据占用的字节数
+     * @param dueTime 到期时间，0 表示永不到期
+     * @param stamp   读取磁盘前获取的失效标记
+     */
+    synchronized void put(String key, Object value, long weight, long dueTime, long stamp) {
+        if (weight > maxSize || stamp != invalidations.get()) {
+            return;
+        }
+        removeEntry(key);
+        entries.put(key, new MemoryEntry(value, weight, dueTime));
+        size += weight;
+        Iterator<MemoryEntry> it = entries.values().iterator();
+        while (size > maxSize && it.hasNext()) {
+            size -= it.next().weight;
+            it.remove();
+        }
+    }
+
+    synchronized void remove(String key) {
+        invalidations.incrementAndGet();
+        removeEntry(key);
+    }
+
+    synchronized void clear() {
+        invalidations.incrementAndGet();
+        entries.clear();
+        size = 0;
+    }
+
+    private void removeEntry(String key) {
+        MemoryEntry entry = entries.remove(key);
+        if (entry != null) {
+            size -= entry.weight;
+        }
+    }
+
+    private static class MemoryEntry {
+        final Object value;
+        final long weight;
+        final long dueTime;
+
+        MemoryEntry(Object value, long weight, long dueTime) {
+            this.value = value;
+            this.weight = weight;
+            this.dueTime = dueTime;
+        }
+    }
+}
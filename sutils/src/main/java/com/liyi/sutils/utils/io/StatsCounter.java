@@ -0,0 +1,84 @@
+package com.liyi.sutils.utils.io;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 统计信息的计数器
+ */
+final class StatsCounter {
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong putCount = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLongArray evictionCounts = new AtomicLongArray(ACache.EvictionReason.values().length);
+    private final LatencyRecorder loadLatency = new LatencyRecorder();
+    private final LatencyRecorder putLatency = new LatencyRecorder();
+    volatile ACache.OnCacheEventListener listener;
+
+    /**
+     * @param nanos 从磁盘读取的耗时，为 0 表示命中内存缓存，不计入耗时分布
+     */
+    void recordLoad(String key, boolean hit, long nanos) {
+        (hit ? hitCount : missCount).incrementAndGet();
+        if (nanos > 0) {
+            loadLatency.record(nanos);
+        }
+        ACache.OnCacheEventListener l = listener;
+        if (l != null) {
+            l.onLoad(key, hit, nanos);
+        }
+    }
+
+    /**
+     * @param nanos 写入的耗时，小于 0 表示未知，不计入耗时分布
+     */
+    void recordPut(String key, long bytes, long nanos) {
+        putCount.incrementAndGet();
+        if (bytes > 0) {
+            bytesWritten.addAndGet(bytes);
+        }
+        if (nanos >= 0) {
+            putLatency.record(nanos);
+        }
+        ACache.OnCacheEventListener l = listener;
+        if (l != null) {
+            l.onPut(key, bytes, nanos);
+        }
+    }
+
+    void recordEviction(ACache.EvictionReason reason, long bytes) {
+        evictionCounts.incrementAndGet(reason.ordinal());
+        ACache.OnCacheEventListener l = listener;
+        if (l != null) {
+            l.onEvict(reason, bytes);
+        }
+    }
+
+    ACache.Stats snapshot(long memoryHitCount, long memoryMissCount, long size, int count) {
+        long[] evictions = new long[evictionCounts.length()];
+        for (int i = 0; i < evictions.length; i++) {
+            evictions[i] = evictionCounts.get(i);
+        }
+        return new ACache.Stats(hitCount.get(), missCount.get(), memoryHitCount, memoryMissCount, putCount.get(), bytesWritten.get(),
+                evictions, loadLatency.snapshot(), putLatency.snapshot(), size, count);
+    }
+
+    private static class LatencyRecorder {
+        private final AtomicLongArray counts = new AtomicLongArray(ACache.Histogram.BUCKET_COUNT);
+        private final AtomicLong totalNanos = new AtomicLong();
+
+        void record(long nanos) {
+            counts.incrementAndGet(ACache.Histogram.bucketOf(nanos));
+            totalNanos.addAndGet(nanos);
+        }
+
+        ACache.Histogram snapshot() {
+            long[] snapshot = new long[counts.length()];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = counts.get(i);
+            }
+            return new ACache.Histogram(snapshot, totalNanos.get());
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.liyi.sutils.utils.io;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步写入队列
+ * <p>
+ * 有界队列，由单个后台线程按放入顺序写入磁盘；同一个 key 尚未写入的数据只保留最新的一份
+ */
+final class WriteBehindQueue implements Runnable {
+    private final int capacity;
+    private final Sink sink;
+    private final LinkedHashMap<String, PendingWrite> pending = new LinkedHashMap<String, PendingWrite>();
+    // 正在写入的数据
+    private String writingKey;
+    private PendingWrite writing;
+    private boolean draining;
+    private ThreadPoolExecutor executor;
+
+    WriteBehindQueue(int capacity, Sink sink) {
+        this.capacity = capacity;
+        this.sink = sink;
+    }
+
+    /**
+     * 放入队列，队列已满时等待
+     */
+    void enqueue(String key, PendingWrite write) {
+        synchronized (this) {
+            boolean interrupted = false;
+            while (pending.size() >= capacity && !pending.containsKey(key)) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            pending.remove(key);
+            pending.put(key, write);
+            if (!draining) {
+                draining = true;
+                getExecutor().execute(this);
+            }
+        }
+    }
+
+    private ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "ACache-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    @Override
+    public void run() {
+        boolean drained = false;
+        try {
+            while (true) {
+                String key;
+                PendingWrite write;
+                synchronized (this) {
+                    Iterator<Entry<String, PendingWrite>> it = pending.entrySet().iterator();
+                    if (!it.hasNext()) {
+                        draining = false;
+                        drained = true;
+                        notifyAll();
+                        return;
+                    }
+                    Entry<String, PendingWrite> next = it.next();
+                    it.remove();
+                    key = next.getKey();
+                    write = next.getValue();
+                    writingKey = key;
+                    writing = write;
+                    notifyAll();
+                }
+                try {
+                    sink.write(key, write.dueTime, write.value);
+                } catch (RuntimeException e) {
+                    // 单个数据写入失败时丢弃该数据，继续写入队列中的其他数据
+                    e.printStackTrace();
+                } finally {
+                    synchronized (this) {
+                        writingKey = null;
+                        writing = null;
+                        notifyAll();
+                    }
+                }
+            }
+        } finally {
+            if (!drained) {
+                // 因 Error 等异常退出时也要重置状态，否则 flush 和 await 会一直等待
+                synchronized (this) {
+                    draining = false;
+                    notifyAll();
+                    if (!pending.isEmpty()) {
+                        draining = true;
+                        getExecutor().execute(this);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取尚未写入磁盘的数据
+     */
+    synchronized PendingWrite get(String key) {
+        PendingWrite write = pending.get(key);
+        if (write == null && key.equals(writingKey)) {
+            write = writing;
+        }
+        return write;
+    }
+
+    /**
+     * 数组是否属于队列中尚未写入磁盘的数据
+     */
+    synchronized boolean isShared(String key, byte[] value) {
+        PendingWrite write = get(key);
+        return write != null && write.value == value;
+    }
+
+    /**
+     * 取消尚未写入的数据，并等待正在写入的数据完成
+     */
+    synchronized void cancel(String key) {
+        if (pending.remove(key) != null) {
+            notifyAll();
+        }
+        await(key);
+    }
+
+    synchronized void cancelAll() {
+        pending.clear();
+        notifyAll();
+        awaitUninterruptibly(null);
+    }
+
+    /**
+     * 等待该 key 的数据写入磁盘
+     */
+    synchronized void await(String key) {
+        awaitUninterruptibly(key);
+    }
+
+    /**
+     * 等待队列中的数据全部写入磁盘
+     *
+     * @param timeout 最长等待时间，0 表示一直等待
+     * @return 是否已全部写入
+     */
+    synchronized boolean flush(long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        boolean interrupted = false;
+        try {
+            while (!pending.isEmpty() || writing != null) {
+                long remaining = timeout == 0 ? 0 : deadline - System.currentTimeMillis();
+                if (timeout != 0 && remaining <= 0) {
+                    return false;
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            return true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 等待正在写入的数据完成
+     *
+     * @param key 为 null 时等待任意数据，否则只等待该 key 的数据（包括队列中的）
+     */
+    private void awaitUninterruptibly(String key) {
+        boolean interrupted = false;
+        while (key == null ? writing != null : (key.equals(writingKey) || pending.containsKey(key))) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 将数据写入磁盘
+     */
+    interface Sink {
+        void write(String key, long dueTime, byte[] value);
+    }
+
+    /**
+     * 等待写入磁盘的数据
+     */
+    static final class PendingWrite {
+        final byte[] value;
+        // 到期时间，0 表示永不到期
+        final long dueTime;
+
+        PendingWrite(byte[] value, long dueTime) {
+            this.value = value;
+            this.dueTime = dueTime;
+        }
+
+        boolean isDue() {
+            return dueTime > 0 && System.currentTimeMillis() > dueTime;
+        }
+    }
+}
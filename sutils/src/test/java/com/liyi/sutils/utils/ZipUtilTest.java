@@ -0,0 +1,253 @@
+package com.liyi.sutils.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * ZipUtil 的多线程压缩、流式压缩解压以及解压的安全限制
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class ZipUtilTest {
+    private static final String COMMENT = "sutils";
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("zip", "");
+        assertTrue(dir.delete() && dir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    @Test
+    public void zipFileParallelRoundTrip() throws IOException {
+        File src = new File(dir, "src");
+        Map<String, byte[]> expected = new HashMap<String, byte[]>();
+        expected.put("src/text.txt", write(new File(src, "text.txt"), repeat("hello zip ", 5000)));
+        expected.put("src/photo.jpg", write(new File(src, "photo.jpg"), random(30000, 1)));
+        expected.put("src/sub/empty.bin", write(new File(src, "sub/empty.bin"), new byte[0]));
+        // 超过在内存中压缩的上限，写入时直接压缩
+        expected.put("src/sub/large.log", write(new File(src, "sub/large.log"), repeat("large ", 1024 * 1024)));
+        assertTrue(new File(src, "dir").mkdirs());
+
+        File zip = new File(dir, "out.zip");
+        assertTrue(ZipUtil.zipFileParallel(src, zip, COMMENT, 4, null));
+
+        Map<String, ZipEntry> entries = new HashMap<String, ZipEntry>();
+        ZipFile zipFile = new ZipFile(zip);
+        try {
+            Enumeration<? extends ZipEntry> e = zipFile.entries();
+            while (e.hasMoreElements()) {
+                ZipEntry entry = e.nextElement();
+                String name = entry.getName();
+                entries.put(name, entry);
+                if (!entry.isDirectory()) {
+                    assertArrayEquals(name, expected.get(name), read(zipFile.getInputStream(entry)));
+                }
+            }
+        } finally {
+            zipFile.close();
+        }
+        assertEquals(expected.size() + 1, entries.size());
+        assertTrue(entries.get("src/dir/").isDirectory());
+        assertEquals(ZipEntry.STORED, entries.get("src/photo.jpg").getMethod());
+        assertEquals(ZipEntry.DEFLATED, entries.get("src/text.txt").getMethod());
+        assertTrue(entries.get("src/text.txt").getCompressedSize() < entries.get("src/text.txt").getSize());
+        assertEquals(COMMENT, entries.get("src/text.txt").getComment());
+    }
+
+    @Test
+    public void defaultLevelPolicyStoresCompressedFormats() {
+        assertEquals(ZipUtil.LEVEL_STORED, ZipUtil.DEFAULT_LEVEL_POLICY.getLevel("a/b.PNG"));
+        assertEquals(ZipUtil.LEVEL_STORED, ZipUtil.DEFAULT_LEVEL_POLICY.getLevel("app.apk"));
+        assertTrue(ZipUtil.DEFAULT_LEVEL_POLICY.getLevel("notes.txt") != ZipUtil.LEVEL_STORED);
+        assertTrue(ZipUtil.DEFAULT_LEVEL_POLICY.getLevel("noext") != ZipUtil.LEVEL_STORED);
+    }
+
+    @Test
+    public void zipStreamsRoundTrip() throws IOException {
+        final Map<String, byte[]> expected = new LinkedHashMap<String, byte[]>();
+        expected.put("a.txt", repeat("stream ", 3000));
+        expected.put("b/c.png", random(5000, 2));
+        expected.put("empty", new byte[0]);
+        Map<String, InputStream> sources = new LinkedHashMap<String, InputStream>();
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            sources.put(entry.getKey(), new ByteArrayInputStream(entry.getValue()));
+        }
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        ZipUtil.zipStreams(sources, zip, null);
+
+        final Map<String, byte[]> actual = new LinkedHashMap<String, byte[]>();
+        ZipUtil.unzipStream(new ByteArrayInputStream(zip.toByteArray()), new ZipUtil.OnZipEntryListener() {
+            @Override
+            public boolean onEntry(ZipEntry entry, InputStream in) throws IOException {
+                actual.put(entry.getName(), read(in));
+                return true;
+            }
+        });
+        assertEquals(expected.keySet().toString(), actual.keySet().toString());
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            assertArrayEquals(entry.getKey(), entry.getValue(), actual.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void zipStreamsLeavesOutputOpen() throws IOException {
+        final boolean[] closed = new boolean[1];
+        ByteArrayOutputStream zip = new ByteArrayOutputStream() {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+                super.close();
+            }
+        };
+        Map<String, InputStream> sources = new LinkedHashMap<String, InputStream>();
+        sources.put("a.txt", new ByteArrayInputStream(repeat("open ", 100)));
+        ZipUtil.zipStreams(sources, zip, null);
+        assertFalse(closed[0]);
+
+        // 读取出错时同样不关闭输出流
+        sources.put("a.txt", new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("broken source");
+            }
+        });
+        try {
+            ZipUtil.zipStreams(sources, zip, null);
+            fail("IOException expected");
+        } catch (IOException expected) {
+            assertEquals("broken source", expected.getMessage());
+        }
+        assertFalse(closed[0]);
+    }
+
+    @Test
+    public void unzipRejectsParentDirEntry() throws IOException {
+        File zip = newZip(new File(dir, "slip.zip"), "../slip.txt", repeat("slip", 10));
+        File dest = new File(dir, "dest");
+        assertRejected(zip, dest, new ZipUtil.UnzipLimits());
+        assertFalse(new File(dir, "slip.txt").exists());
+    }
+
+    @Test
+    public void unzipRejectsAbsoluteEntry() throws IOException {
+        File target = new File(dir, "absolute.txt");
+        File zip = newZip(new File(dir, "absolute.zip"), target.getPath(), repeat("absolute", 10));
+        File dest = new File(dir, "dest");
+        assertRejected(zip, dest, new ZipUtil.UnzipLimits());
+        assertFalse(target.exists());
+        assertFalse(new File(dest, target.getPath()).exists());
+    }
+
+    @Test
+    public void unzipRejectsHighCompressionRatio() throws IOException {
+        // 4M 的 0 压缩后只有几 K，超过默认 100 倍的压缩比
+        File zip = newZip(new File(dir, "bomb.zip"), "zeros", new byte[4 * 1024 * 1024]);
+        assertTrue(zip.length() < 64 * 1024);
+        File dest = new File(dir, "dest");
+        assertRejected(zip, dest, new ZipUtil.UnzipLimits());
+        assertFalse(new File(dest, "zeros").exists());
+    }
+
+    @Test
+    public void unzipRejectsTotalSizeOverLimit() throws IOException {
+        File zip = newZip(new File(dir, "large.zip"), "large", random(20000, 3));
+        File dest = new File(dir, "dest");
+        assertRejected(zip, dest, new ZipUtil.UnzipLimits().setMaxTotalBytes(10000));
+        assertFalse(new File(dest, "large").exists());
+    }
+
+    private static void assertRejected(File zip, File dest, ZipUtil.UnzipLimits limits) throws IOException {
+        try {
+            ZipUtil.unzipFileByKeyword(zip, dest, null, limits);
+            fail("ZipException expected");
+        } catch (ZipException expected) {
+            // 超出限制或路径不在目标目录中
+        }
+    }
+
+    private static File newZip(File file, String entryName, byte[] data) throws IOException {
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            out.putNextEntry(new ZipEntry(entryName));
+            out.write(data);
+            out.closeEntry();
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static byte[] repeat(String s, int times) {
+        StringBuilder sb = new StringBuilder(s.length() * times);
+        for (int i = 0; i < times; i++) {
+            sb.append(s);
+        }
+        return sb.toString().getBytes();
+    }
+
+    private static byte[] random(int len, long seed) {
+        byte[] data = new byte[len];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] write(File file, byte[] data) throws IOException {
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        return data;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
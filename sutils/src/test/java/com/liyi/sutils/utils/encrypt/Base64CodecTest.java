@@ -0,0 +1,154 @@
+package com.liyi.sutils.utils.encrypt;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Base64Codec 查表编解码以及 Base64Decoder 流式解码
+ * <p>
+ * 按位逐个计算的参考实现与 android.util.Base64 的 DEFAULT 格式一致：
+ * 每 76 个字符换行（'\n'），最后一行也以换行结尾
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class Base64CodecTest {
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+    @Test
+    public void rfc4648Vectors() {
+        String[][] vectors = {
+                {"", ""}, {"f", "Zg=="}, {"fo", "Zm8="}, {"foo", "Zm9v"},
+                {"foob", "Zm9vYg=="}, {"fooba", "Zm9vYmE="}, {"foobar", "Zm9vYmFy"}};
+        for (String[] vector : vectors) {
+            assertEquals(vector[1], Base64Codec.encodeToString(vector[0].getBytes(), Base64Codec.NO_WRAP));
+            assertEquals(vector[0], new String(Base64Codec.decode(vector[1])));
+        }
+    }
+
+    @Test
+    public void defaultMatchesReference() {
+        Random random = new Random(1);
+        int[] lengths = {0, 1, 2, 3, 56, 57, 58, 114, 171, 1000, 57 * 1024 + 1};
+        int[] flags = {Base64Codec.DEFAULT, Base64Codec.NO_WRAP, Base64Codec.NO_PADDING,
+                Base64Codec.URL_SAFE, Base64Codec.NO_WRAP | Base64Codec.NO_PADDING | Base64Codec.URL_SAFE};
+        for (int len : lengths) {
+            byte[] data = new byte[len];
+            random.nextBytes(data);
+            for (int flag : flags) {
+                String expected = reference(data, flag);
+                byte[] encoded = Base64Codec.encode(data, flag);
+                assertEquals(len + "/" + flag, expected, new String(encoded));
+                assertEquals(encoded.length, Base64Codec.encodedLength(len, flag));
+                assertArrayEquals(data, Base64Codec.decode(encoded));
+            }
+        }
+    }
+
+    @Test
+    public void streamEncodeMatchesArrayEncode() throws IOException {
+        byte[] data = new byte[57 * 1024 * 3 + 100];
+        new Random(2).nextBytes(data);
+        for (int flag : new int[]{Base64Codec.DEFAULT, Base64Codec.NO_WRAP}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            // 每次只返回少量数据的输入流
+            InputStream in = new ByteArrayInputStream(data) {
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    return super.read(b, off, Math.min(len, 1000));
+                }
+            };
+            assertEquals(data.length, Base64Codec.encode(in, out, flag));
+            assertArrayEquals(Base64Codec.encode(data, flag), out.toByteArray());
+        }
+    }
+
+    @Test
+    public void decodeIgnoresWhitespaceAndStopsAtPadding() {
+        assertEquals("foobar", new String(Base64Codec.decode(" Zm9v\r\nYmFy\t")));
+        assertEquals("fo", new String(Base64Codec.decode("Zm8=ignored")));
+        assertEquals("fo", new String(Base64Codec.decode("Zm8")));
+        assertArrayEquals(new byte[]{(byte) 0xfb, (byte) 0xff}, Base64Codec.decode("-_8"));
+        assertArrayEquals(new byte[]{(byte) 0xfb, (byte) 0xff}, Base64Codec.decode("+/8"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeRejectsIllegalChar() {
+        Base64Codec.decode("Zm9*");
+    }
+
+    @Test
+    public void decoderStreamMatchesArrayDecode() throws IOException {
+        byte[] data = new byte[5000];
+        new Random(3).nextBytes(data);
+        for (int tail = 0; tail < 3; tail++) {
+            byte[] part = new byte[data.length - tail];
+            System.arraycopy(data, 0, part, 0, part.length);
+            byte[] encoded = Base64Codec.encode(part, Base64Codec.DEFAULT);
+            assertArrayEquals(part, Base64Decoder.decodeToBytes(new String(encoded)));
+
+            // 按不同的大小读取，包括放不下一整组的 1、2 字节
+            for (int chunk : new int[]{1, 2, 5, 4096}) {
+                InputStream in = new Base64Decoder(new ByteArrayInputStream(encoded));
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[chunk];
+                int len;
+                while ((len = in.read(buffer, 0, chunk)) != -1) {
+                    out.write(buffer, 0, len);
+                }
+                assertArrayEquals(tail + "/" + chunk, part, out.toByteArray());
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void decoderStreamRejectsIllegalChar() throws IOException {
+        InputStream in = new Base64Decoder(new ByteArrayInputStream("Zm9v*mFy".getBytes()));
+        byte[] buffer = new byte[16];
+        while (in.read(buffer) != -1) {
+            // 读到非法字符时抛出
+        }
+    }
+
+    /**
+     * 逐位拼接 6 位值的参考实现
+     */
+    private static String reference(byte[] data, int flags) {
+        String alphabet = (flags & Base64Codec.URL_SAFE) != 0
+                ? ALPHABET.replace('+', '-').replace('/', '_') : ALPHABET;
+        StringBuilder sb = new StringBuilder();
+        int bits = data.length * 8;
+        for (int bit = 0; bit < bits; bit += 6) {
+            int value = 0;
+            for (int i = bit; i < bit + 6; i++) {
+                value <<= 1;
+                if (i < bits && (data[i / 8] >> (7 - i % 8) & 1) != 0) {
+                    value |= 1;
+                }
+            }
+            sb.append(alphabet.charAt(value));
+        }
+        if ((flags & Base64Codec.NO_PADDING) == 0) {
+            while (sb.length() % 4 != 0) {
+                sb.append('=');
+            }
+        }
+        if ((flags & Base64Codec.NO_WRAP) != 0) {
+            return sb.toString();
+        }
+        StringBuilder wrapped = new StringBuilder();
+        for (int i = 0; i < sb.length(); i += 76) {
+            wrapped.append(sb, i, Math.min(i + 76, sb.length())).append('\n');
+        }
+        return wrapped.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package com.liyi.sutils.utils.encrypt;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * HexUtil 查表编码以及使用它的摘要工具
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class HexUtilTest {
+    private static final byte[] DATA = {0x00, 0x01, 0x7f, (byte) 0x80, (byte) 0xab, (byte) 0xff};
+
+    @Test
+    public void encode() {
+        assertEquals("00017f80abff", HexUtil.encode(DATA));
+        assertEquals("00017F80ABFF", HexUtil.encode(DATA, true));
+        assertEquals("7f80", HexUtil.encode(DATA, 2, 2, false));
+        assertEquals("", HexUtil.encode(new byte[0]));
+    }
+
+    @Test
+    public void encodeWithSeparator() {
+        assertEquals("00:01:7F:80:AB:FF", HexUtil.encode(DATA, ':', true));
+        assertEquals("ab", HexUtil.encode(new byte[]{(byte) 0xab}, ':', false));
+        assertEquals("", HexUtil.encode(new byte[0], ':', false));
+    }
+
+    @Test
+    public void decodeRoundTrip() {
+        assertArrayEquals(DATA, HexUtil.decode("00017f80abff"));
+        assertArrayEquals(DATA, HexUtil.decode("00017F80ABFF"));
+        byte[] random = new byte[1000];
+        new Random(1).nextBytes(random);
+        assertArrayEquals(random, HexUtil.decode(HexUtil.encode(random)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeRejectsOddLength() {
+        HexUtil.decode("abc");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeRejectsIllegalChar() {
+        HexUtil.decode("0g");
+    }
+
+    @Test
+    public void md5Vectors() {
+        assertEquals("900150983cd24fb0d6963f7d28e17f72", Md5Util.encrypt("abc".getBytes()));
+        assertEquals("d41d8cd98f00b204e9800998ecf8427e", Md5Util.encrypt(new byte[0]));
+        assertEquals("900150983cd24fb0d6963f7d28e17f72", Md5Util.encrypt("abc"));
+    }
+
+    @Test
+    public void md5OfFileMatchesBytes() throws IOException {
+        byte[] data = new byte[600 * 1024 + 3];
+        new Random(2).nextBytes(data);
+        File file = File.createTempFile("md5", "");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(data);
+            out.close();
+            String expected = Md5Util.encrypt(data);
+            assertEquals(expected, Md5Util.encrypt(file));
+            assertEquals(expected, Md5Util.encryptByNio(file));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.liyi.sutils.utils.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * ACache 的额度统计：并发写入以及写入失败时不泄漏额度
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class ACacheAccountingTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = ACacheTestSupport.newCacheDir();
+    }
+
+    @After
+    public void tearDown() {
+        ACacheTestSupport.delete(dir);
+    }
+
+    @Test
+    public void concurrentPutsOfSameKeyDoNotLeak() throws Exception {
+        final ACache cache = ACache.get(dir, new ACache.Config().setConcurrencyLevel(8));
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        for (int t = 0; t < threads; t++) {
+            final int size = 100 + t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 500; i++) {
+                            cache.put("k" + (i % 5), new byte[size]);
+                        }
+                    } catch (Throwable e) {
+                        error.set(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        assertNull(error.get());
+        ACache.Stats stats = cache.getStats();
+        assertEquals(5, stats.getCount());
+        assertEquals(ACacheTestSupport.diskUsage(dir), stats.getSize());
+    }
+
+    @Test
+    public void failedWriteIsNotIndexed() {
+        ACache cache = ACache.get(dir, new ACache.Config());
+        // 缓存文件的位置被非空目录占用，临时文件无法替换它
+        File blocked = new File(dir, String.valueOf("k0".hashCode()));
+        assertTrue(new File(blocked, "child").mkdirs());
+        cache.put("k0", "v0");
+        cache.put("k1", "v1");
+        Map<String, String> values = new LinkedHashMap<String, String>();
+        values.put("k0", "v0");
+        values.put("k2", "v2");
+        cache.putAll(values);
+        ACache.Stats stats = cache.getStats();
+        assertEquals(2, stats.getCount());
+        assertEquals(ACacheTestSupport.diskUsage(dir), stats.getSize());
+        assertEquals("v1", cache.getAsString("k1"));
+        assertEquals("v2", cache.getAsString("k2"));
+    }
+}
@@ -0,0 +1,95 @@
+package com.liyi.sutils.utils.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * ACache 的批量读写
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class ACacheBatchTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = ACacheTestSupport.newCacheDir();
+    }
+
+    @After
+    public void tearDown() {
+        ACacheTestSupport.delete(dir);
+    }
+
+    @Test
+    public void getAllKeepsKeyOrderAndSkipsMissing() {
+        ACache cache = ACache.get(dir);
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        values.put("a", "1");
+        values.put("b", new byte[]{2});
+        values.put("c", "3");
+        cache.putAll(values);
+
+        Map<String, String> strings = cache.getAllAsString(Arrays.asList("c", "missing", "a", "c"));
+        Iterator<Map.Entry<String, String>> it = strings.entrySet().iterator();
+        Map.Entry<String, String> entry = it.next();
+        assertEquals("c", entry.getKey());
+        assertEquals("3", entry.getValue());
+        entry = it.next();
+        assertEquals("a", entry.getKey());
+        assertEquals("1", entry.getValue());
+        assertFalse(it.hasNext());
+
+        Map<String, byte[]> bytes = cache.getAll(Arrays.asList("b"));
+        assertArrayEquals(new byte[]{2}, bytes.get("b"));
+    }
+
+    @Test
+    public void putAllReplacesAndAccounts() {
+        ACache cache = ACache.get(dir, new ACache.Config().setMaxCount(50));
+        Map<String, byte[]> values = new LinkedHashMap<String, byte[]>();
+        for (int i = 0; i < 40; i++) {
+            values.put("k" + i, new byte[100]);
+        }
+        cache.putAll(values);
+        // 覆盖一半并新增，超出数量上限
+        values.clear();
+        for (int i = 20; i < 60; i++) {
+            values.put("k" + i, new byte[50]);
+        }
+        cache.putAll(values);
+
+        ACache.Stats stats = cache.getStats();
+        assertEquals(50, stats.getCount());
+        assertEquals(10, stats.getEvictionCount(ACache.EvictionReason.COUNT));
+        assertEquals(ACacheTestSupport.diskUsage(dir), stats.getSize());
+        assertEquals(50, ACacheTestSupport.cacheFileCount(dir));
+        assertNull(cache.getAsBinary("k0"));
+        assertEquals(50, cache.getAsBinary("k59").length);
+    }
+
+    @Test
+    public void putAllWithSaveTime() throws Exception {
+        ACache cache = ACache.get(dir);
+        Map<String, String> values = new LinkedHashMap<String, String>();
+        values.put("a", "1");
+        values.put("b", "2");
+        cache.putAll(values, 1);
+        assertEquals(2, cache.getAllAsString(values.keySet()).size());
+        Thread.sleep(1100);
+        assertTrue(cache.getAllAsString(values.keySet()).isEmpty());
+    }
+}
@@ -0,0 +1,102 @@
+package com.liyi.sutils.utils.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * ACache 的二进制头部以及旧格式（ASCII 时间前缀）文件的转换
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class ACacheHeaderTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = ACacheTestSupport.newCacheDir();
+    }
+
+    @After
+    public void tearDown() {
+        ACacheTestSupport.delete(dir);
+    }
+
+    @Test
+    public void magicPrefixedValueRoundTrips() {
+        ACache cache = ACache.get(dir);
+        byte[] value = "ACH looks like a header".getBytes();
+        cache.put("plain", value);
+        cache.put("timed", value, 60);
+        cache.put("short", new byte[]{'A', 'C', 'H'});
+        assertArrayEquals(value, cache.getAsBinary("plain"));
+        assertArrayEquals(value, cache.getAsBinary("timed"));
+        assertArrayEquals(new byte[]{'A', 'C', 'H'}, cache.getAsBinary("short"));
+    }
+
+    @Test
+    public void truncatedHeaderReadsAsNull() throws Exception {
+        ACache cache = ACache.get(dir);
+        cache.put("key", "value", 60);
+        File file = new File(dir, "key".hashCode() + "");
+        byte[] head = ACacheTestSupport.readHead(file, 10);
+        // 写入中断，只留下部分头部
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(head);
+        out.close();
+        assertNull(cache.getAsString("key"));
+        assertNull(cache.getAsBinary("key"));
+    }
+
+    @Test
+    public void legacyEntryIsMigrated() throws Exception {
+        File legacy = writeLegacy("key", 3600, "legacy");
+        ACache cache = ACache.get(dir, new ACache.Config());
+        assertEquals("legacy", cache.getAsString("key"));
+        assertEquals(1, cache.migrateLegacyEntries());
+        assertArrayEquals(new byte[]{'A', 'C', 'H'}, ACacheTestSupport.readHead(legacy, 3));
+        assertEquals("legacy", cache.getAsString("key"));
+        assertEquals(ACacheTestSupport.diskUsage(dir), cache.getStats().getSize());
+    }
+
+    @Test
+    public void failedMigrationKeepsLegacyFile() throws Exception {
+        File legacy = writeLegacy("key", 3600, "legacy");
+        // 临时文件的位置被目录占用，转换时无法写入
+        assertTrue(new File(dir, legacy.getName() + ".tmp").mkdirs());
+        assertTrue(new File(dir, legacy.getName() + ".1.tmp").mkdirs());
+        ACache cache = ACache.get(dir, new ACache.Config());
+        assertEquals(0, cache.migrateLegacyEntries());
+        // DIRTY 记录之后要有一条 PUT，否则重新打开时文件会被当作写入中断而删除
+        ACacheTestSupport.awaitJournalLine(dir, "PUT " + legacy.getName() + " " + legacy.length());
+
+        ACache reopened = ACacheTestSupport.reopen(dir, new ACache.Config());
+        // 写入会等待索引恢复完成，之后写入中断的文件已被删除
+        reopened.put("other", "value");
+        assertEquals("legacy", reopened.getAsString("key"));
+        assertEquals(2, reopened.getStats().getCount());
+    }
+
+    /**
+     * 写入旧格式的缓存文件："保存时间毫秒数-保存秒数 " + 数据
+     */
+    private File writeLegacy(String key, int saveTime, String value) throws IOException {
+        File file = new File(dir, key.hashCode() + "");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write((System.currentTimeMillis() + "-" + saveTime + " " + value).getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,182 @@
+package com.liyi.sutils.utils.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * ACache 的日志：恢复索引、写入中断以及日志损坏时的处理
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class ACacheJournalTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = ACacheTestSupport.newCacheDir();
+    }
+
+    @After
+    public void tearDown() {
+        ACacheTestSupport.delete(dir);
+    }
+
+    @Test
+    public void journalRestoresAccessOrder() throws Exception {
+        ACache cache = ACache.get(dir, new ACache.Config().setMaxCount(3));
+        cache.put("k0", "v0");
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        cache.getAsString("k0");
+        // 日志由后台线程写入，等待最后一条读取记录
+        ACacheTestSupport.awaitJournalLine(dir, "READ " + "k0".hashCode());
+
+        ACache reopened = ACacheTestSupport.reopen(dir, new ACache.Config().setMaxCount(3));
+        reopened.put("k3", "v3");
+        assertNull(reopened.getAsString("k1"));
+        assertEquals("v0", reopened.getAsString("k0"));
+        assertEquals("v2", reopened.getAsString("k2"));
+        assertEquals(3, reopened.getStats().getCount());
+        assertEquals(ACacheTestSupport.diskUsage(dir), reopened.getStats().getSize());
+    }
+    @Test
+    public void trailingDirtyDeletesFileOnReopen() throws Exception {
+        ACache cache = ACache.get(dir, new ACache.Config());
+        cache.put("k0", "v0");
+        cache.put("k1", "v1");
+        File file = new File(dir, "k1".hashCode() + "");
+        ACacheTestSupport.awaitJournalLine(dir, "PUT " + file.getName() + " " + file.length());
+        // 覆盖 k1 时进程退出，日志中只留下 DIRTY 记录
+        append("DIRTY " + file.getName() + "\n");
+
+        ACache reopened = ACacheTestSupport.reopen(dir, new ACache.Config());
+        // 写入会等待索引恢复完成
+        reopened.put("k2", "v2");
+        assertFalse(file.exists());
+        assertNull(reopened.getAsString("k1"));
+        assertEquals("v0", reopened.getAsString("k0"));
+        assertEquals(2, reopened.getStats().getCount());
+        assertEquals(ACacheTestSupport.diskUsage(dir), reopened.getStats().getSize());
+    }
+
+    @Test
+    public void truncatedLastLineFallsBackToScan() throws Exception {
+        ACache cache = ACache.get(dir, new ACache.Config());
+        cache.put("k0", "v0");
+        cache.put("k1", "v1");
+        File file = new File(dir, "k1".hashCode() + "");
+        ACacheTestSupport.awaitJournalLine(dir, "PUT " + file.getName() + " " + file.length());
+        // 追加记录时进程退出，最后一行不完整
+        append("PUT " + file.getName());
+
+        ACache reopened = ACacheTestSupport.reopen(dir, new ACache.Config());
+        reopened.put("k2", "v2");
+        assertEquals("v0", reopened.getAsString("k0"));
+        assertEquals("v1", reopened.getAsString("k1"));
+        assertEquals(3, reopened.getStats().getCount());
+        assertEquals(ACacheTestSupport.diskUsage(dir), reopened.getStats().getSize());
+        // 重新生成的日志可以正常恢复索引
+        ACacheTestSupport.awaitJournalLine(dir, "READ " + file.getName());
+        ACache again = ACacheTestSupport.reopen(dir, new ACache.Config());
+        again.put("k3", "v3");
+        assertEquals(4, again.getStats().getCount());
+    }
+
+    @Test
+    public void rebuildKeepsPendingWrites() throws Exception {
+        ACacheManager manager = newManager();
+        File done = manager.newFile("done");
+        write(done, 10);
+        manager.put(done, 0);
+        // 两个文件正在写入，压缩日志时还没有放入索引
+        File committed = manager.newFile("committed");
+        File interrupted = manager.newFile("interrupted");
+        manager.beginWrite(committed);
+        manager.beginWrite(interrupted);
+        write(committed, 20);
+        write(interrupted, 30);
+        // 多余的记录超过阈值后在后台压缩日志
+        for (int i = 0; i < CacheJournal.REDUNDANT_OP_COMPACT_THRESHOLD; i++) {
+            manager.touch(done);
+        }
+        manager.put(committed, 0);
+        awaitCompacted("PUT " + committed.getName() + " 20");
+
+        // 模拟进程重启
+        ACacheManager reopened = newManager();
+        // 删除会等待索引恢复完成
+        reopened.remove("missing");
+        assertFalse(interrupted.exists());
+        assertTrue(done.exists());
+        assertTrue(committed.exists());
+        assertEquals(2, reopened.getCount());
+        assertEquals(30, reopened.getSize());
+    }
+
+    private ACacheManager newManager() {
+        return new ACacheManager(dir, Long.MAX_VALUE, Integer.MAX_VALUE, 1, ACache.Layout.FLAT, 0, new StatsCounter());
+    }
+
+    /**
+     * 等待日志被重新生成：多余的读取记录已被清除，并且已写入指定的记录
+     * <p>
+     * 记录按顺序写入，指定的记录出现时之前的读取记录也已写入，日志仍然很短说明已被重新生成
+     */
+    private void awaitCompacted(String expected) throws Exception {
+        File journal = new File(dir, CacheJournal.JOURNAL_FILE);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            String content = read(journal);
+            if (content.contains(expected + "\n") && content.split("\n").length < 100) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("journal was not compacted");
+    }
+
+    private static String read(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FileInputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                out.write(buffer, 0, len);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toString("UTF-8");
+    }
+
+    private void append(String text) throws IOException {
+        FileOutputStream out = new FileOutputStream(new File(dir, CacheJournal.JOURNAL_FILE), true);
+        try {
+            out.write(text.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void write(File file, int len) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[len]);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.liyi.sutils.utils.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.*;
+
+/**
+ * ACache 的分级目录存储
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class ACacheLayoutTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = ACacheTestSupport.newCacheDir();
+    }
+
+    @After
+    public void tearDown() {
+        ACacheTestSupport.delete(dir);
+    }
+
+    @Test
+    public void hashedRoundTrip() throws Exception {
+        ACache cache = ACache.get(dir, new ACache.Config().setLayout(ACache.Layout.HASHED));
+        cache.put("key", "value");
+        cache.put("timed", "value2", 60);
+        assertEquals("value", cache.getAsString("key"));
+        assertEquals("value2", cache.getAsString("timed"));
+
+        File file = hashedFile("key");
+        assertTrue(file.isFile());
+        byte[] head = ACacheTestSupport.readHead(file, 3);
+        assertArrayEquals(new byte[]{'A', 'C', 'H'}, head);
+    }
+
+    @Test
+    public void hashedKeepsCollidingKeysApart() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        ACache cache = ACache.get(dir, new ACache.Config().setLayout(ACache.Layout.HASHED));
+        cache.put("Aa", "first");
+        cache.put("BB", "second");
+        assertEquals("first", cache.getAsString("Aa"));
+        assertEquals("second", cache.getAsString("BB"));
+        assertEquals(2, cache.getStats().getCount());
+    }
+
+    @Test
+    public void hashedRecreatesDeletedDirs() throws Exception {
+        ACache cache = ACache.get(dir, new ACache.Config().setLayout(ACache.Layout.HASHED));
+        cache.put("key", "value");
+        // 外部清理删除了所有分级目录
+        File[] children = dir.listFiles();
+        for (File child : children) {
+            if (child.isDirectory()) {
+                ACacheTestSupport.delete(child);
+            }
+        }
+        cache.put("key", "again");
+        assertEquals("again", cache.getAsString("key"));
+
+        ACacheTestSupport.delete(hashedFile("stream").getParentFile().getParentFile());
+        OutputStream out = cache.put("stream");
+        out.write("streamed".getBytes("UTF-8"));
+        out.close();
+        assertEquals("streamed", cache.getAsString("stream"));
+    }
+
+    @Test
+    public void streamPutRoundTrip() throws Exception {
+        ACache cache = ACache.get(dir, new ACache.Config().setLayout(ACache.Layout.HASHED));
+        byte[] data = new byte[100 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        OutputStream out = cache.put("big");
+        out.write(data);
+        out.close();
+        InputStream in = cache.get("big");
+        assertNotNull(in);
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            read.write(buffer, 0, len);
+        }
+        in.close();
+        assertArrayEquals(data, read.toByteArray());
+    }
+
+    private File hashedFile(String key) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest) {
+            hex.append(String.format("%02x", b & 0xff));
+        }
+        String name = hex.toString();
+        return new File(new File(new File(dir, name.substring(0, 2)), name.substring(2, 4)), name);
+    }
+}
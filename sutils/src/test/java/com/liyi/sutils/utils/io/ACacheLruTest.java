@@ -0,0 +1,65 @@
+package com.liyi.sutils.utils.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * ACache 按访问顺序淘汰的索引：淘汰顺序以及额度统计
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class ACacheLruTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = ACacheTestSupport.newCacheDir();
+    }
+
+    @After
+    public void tearDown() {
+        ACacheTestSupport.delete(dir);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        ACache cache = ACache.get(dir, new ACache.Config().setMaxCount(3));
+        cache.put("k0", "v0");
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        // 读取后 k0 变为最近使用，k1 最久未使用
+        assertEquals("v0", cache.getAsString("k0"));
+        cache.put("k3", "v3");
+        assertNull(cache.getAsString("k1"));
+        assertEquals("v0", cache.getAsString("k0"));
+        assertEquals("v2", cache.getAsString("k2"));
+        assertEquals("v3", cache.getAsString("k3"));
+        assertEquals(1, cache.getStats().getEvictionCount(ACache.EvictionReason.COUNT));
+    }
+
+    @Test
+    public void sizeAndCountMatchDisk() {
+        ACache cache = ACache.get(dir, new ACache.Config().setMaxSize(10000).setMaxCount(1000));
+        for (int i = 0; i < 500; i++) {
+            cache.put("k" + i, new byte[100 + i % 50]);
+        }
+        // 覆盖已有的 key
+        for (int i = 0; i < 50; i++) {
+            cache.put("k" + (499 - i), new byte[10]);
+        }
+        cache.remove("k499");
+        ACache.Stats stats = cache.getStats();
+        assertTrue(stats.getSize() <= 10000);
+        assertEquals(ACacheTestSupport.diskUsage(dir), stats.getSize());
+        assertEquals(ACacheTestSupport.cacheFileCount(dir), stats.getCount());
+    }
+}
@@ -0,0 +1,135 @@
+package com.liyi.sutils.utils.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.fail;
+
+/**
+ * io 包单元测试共用的临时目录与缓存目录工具
+ */
+final class ACacheTestSupport {
+
+    private ACacheTestSupport() {
+    }
+
+    /**
+     * 创建一个空的临时目录
+     */
+    static File newCacheDir() throws IOException {
+        File dir = File.createTempFile("acache", "");
+        if (!dir.delete() || !dir.mkdirs()) {
+            throw new IOException("can't create " + dir);
+        }
+        return dir;
+    }
+
+    /**
+     * 不经过实例缓存重新打开同一目录，模拟进程重启
+     */
+    static ACache reopen(File dir, ACache.Config config) {
+        return new ACache(dir, config);
+    }
+
+    /**
+     * 缓存文件（不包括日志和临时文件）的总大小
+     */
+    static long diskUsage(File dir) {
+        long total = 0;
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    total += diskUsage(child);
+                } else if (isCacheFile(child)) {
+                    total += child.length();
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 缓存文件（不包括日志和临时文件）的数量
+     */
+    static int cacheFileCount(File dir) {
+        int count = 0;
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    count += cacheFileCount(child);
+                } else if (isCacheFile(child)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static boolean isCacheFile(File file) {
+        String name = file.getName();
+        return !name.startsWith("journal") && !name.endsWith(".tmp");
+    }
+
+    /**
+     * 日志由后台线程写入，等待日志的最后一行变为指定的内容
+     */
+    static void awaitJournalLine(File dir, String expected) throws Exception {
+        File journal = new File(dir, "journal");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            if (journal.exists() && expected.equals(lastLine(journal))) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("journal was not written: " + expected);
+    }
+
+    static String lastLine(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String last = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                last = line;
+            }
+            return last;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 读取文件开头的字节，文件不足 len 字节时返回全部内容
+     */
+    static byte[] readHead(File file, int len) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            byte[] head = new byte[len];
+            int read = 0;
+            int n;
+            while (read < len && (n = in.read(head, read, len - read)) != -1) {
+                read += n;
+            }
+            return Arrays.copyOf(head, read);
+        } finally {
+            in.close();
+        }
+    }
+
+    static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
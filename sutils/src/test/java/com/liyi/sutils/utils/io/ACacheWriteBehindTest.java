@@ -0,0 +1,118 @@
+package com.liyi.sutils.utils.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * ACache 的异步写入队列：写入之前的读取以及删除
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class ACacheWriteBehindTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = ACacheTestSupport.newCacheDir();
+    }
+
+    @After
+    public void tearDown() {
+        ACacheTestSupport.delete(dir);
+    }
+
+    @Test
+    public void getSeesQueuedPutBeforeFlush() throws Exception {
+        BlockingSink sink = new BlockingSink();
+        WriteBehindQueue queue = new WriteBehindQueue(4, sink);
+        WriteBehindQueue.PendingWrite first = new WriteBehindQueue.PendingWrite(new byte[]{1}, 0);
+        WriteBehindQueue.PendingWrite second = new WriteBehindQueue.PendingWrite(new byte[]{2}, 0);
+        queue.enqueue("first", first);
+        // 后台线程正在写入 first，second 还在队列中
+        assertTrue(sink.started.await(5, TimeUnit.SECONDS));
+        queue.enqueue("second", second);
+        assertSame(first, queue.get("first"));
+        assertSame(second, queue.get("second"));
+        assertTrue(sink.written.isEmpty());
+
+        sink.release.countDown();
+        assertTrue(queue.flush(5000));
+        assertEquals(2, sink.written.size());
+        assertNull(queue.get("first"));
+        assertNull(queue.get("second"));
+    }
+
+    @Test
+    public void removeAfterQueuedPutWins() throws Exception {
+        BlockingSink sink = new BlockingSink();
+        WriteBehindQueue queue = new WriteBehindQueue(4, sink);
+        queue.enqueue("first", new WriteBehindQueue.PendingWrite(new byte[]{1}, 0));
+        assertTrue(sink.started.await(5, TimeUnit.SECONDS));
+        queue.enqueue("second", new WriteBehindQueue.PendingWrite(new byte[]{2}, 0));
+        // 删除时取消队列中尚未写入的数据
+        queue.cancel("second");
+        assertNull(queue.get("second"));
+
+        sink.release.countDown();
+        assertTrue(queue.flush(5000));
+        assertEquals(Collections.singletonList("first"), sink.written);
+    }
+
+    @Test
+    public void cacheReadsQueuedPutOverStaleMemory() {
+        ACache cache = ACache.get(dir, new ACache.Config().setMemoryCacheSize(1024));
+        cache.put("key", "old");
+        assertEquals("old", cache.getAsString("key"));
+        cache.putAsync("key", "new");
+        // 无论是否已经写入磁盘，都不会读到内存缓存中的旧数据
+        assertEquals("new", cache.getAsString("key"));
+        cache.flush();
+        assertEquals("new", cache.getAsString("key"));
+    }
+
+    @Test
+    public void cacheRemoveAfterQueuedPutWins() {
+        ACache cache = ACache.get(dir, new ACache.Config());
+        cache.put("key", "old");
+        cache.putAsync("key", "new");
+        cache.remove("key");
+        cache.flush();
+        assertNull(cache.getAsString("key"));
+        assertFalse(new File(dir, "key".hashCode() + "").exists());
+        assertEquals(0, cache.getStats().getCount());
+    }
+
+    /**
+     * 写入第一个数据时等待，直到测试放行
+     */
+    private static class BlockingSink implements WriteBehindQueue.Sink {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> written = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void write(String key, long dueTime, byte[] value) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.add(key);
+        }
+    }
+}
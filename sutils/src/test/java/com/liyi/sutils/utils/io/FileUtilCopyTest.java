@@ -0,0 +1,170 @@
+package com.liyi.sutils.utils.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * FileUtil 通过 FileChannel 拷贝文件以及文件夹
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class FileUtilCopyTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = ACacheTestSupport.newCacheDir();
+    }
+
+    @After
+    public void tearDown() {
+        ACacheTestSupport.delete(dir);
+    }
+
+    @Test
+    public void copyFileKeepsContent() throws IOException {
+        File src = write(new File(dir, "src"), 3 * 1024 * 1024 + 7, 1);
+        File dst = new File(dir, "dst");
+        final AtomicLong progress = new AtomicLong();
+        assertTrue(FileUtil.getInstance().copyFile(src.getPath(), dst.getPath(), false,
+                new FileUtil.OnCopyProgressListener() {
+                    @Override
+                    public void onProgress(File file, long copied, long total) {
+                        progress.set(copied);
+                    }
+                }));
+        assertArrayEquals(read(src), read(dst));
+        assertEquals(src.length(), progress.get());
+    }
+
+    @Test
+    public void copyFileOverwritesLongerTarget() throws IOException {
+        File src = write(new File(dir, "src"), 100, 2);
+        File dst = write(new File(dir, "dst"), 10000, 3);
+        FileUtil.getInstance().copyFile(src.getPath(), dst.getPath());
+        assertArrayEquals(read(src), read(dst));
+    }
+
+    @Test
+    public void copyFileOfEmptyFile() throws IOException {
+        File src = write(new File(dir, "src"), 0, 4);
+        File dst = new File(dir, "dst");
+        assertTrue(FileUtil.getInstance().copyFile(src.getPath(), dst.getPath(), true, null));
+        assertTrue(dst.isFile());
+        assertEquals(0, dst.length());
+    }
+
+    @Test
+    public void copyFileFailsWithoutSource() {
+        assertFalse(FileUtil.getInstance().copyFile(new File(dir, "missing").getPath(),
+                new File(dir, "dst").getPath(), false, null));
+    }
+
+    @Test
+    public void copyDirKeepsTree() throws IOException {
+        File src = newTree(new File(dir, "src"));
+        File dst = new File(dir, "dst");
+        assertTrue(FileUtil.getInstance().copyDir(src.getPath(), dst.getPath(), true, null));
+        assertSameTree(src, dst);
+        assertEquals(new File(src, "a/b/deep").lastModified(), new File(dst, "a/b/deep").lastModified());
+    }
+
+    @Test
+    public void copyDirParallelKeepsTree() throws IOException {
+        File src = newTree(new File(dir, "src"));
+        File dst = new File(dir, "dst");
+        FileUtil.CopyResult result = FileUtil.getInstance().copyDirParallel(src.getPath(), dst.getPath());
+        assertTrue(result.isSuccess());
+        assertEquals(22, result.getFileCount());
+        assertSameTree(src, dst);
+    }
+
+    @Test
+    public void copyDirParallelContinuesAfterListenerThrows() throws IOException {
+        File src = newTree(new File(dir, "src"));
+        File dst = new File(dir, "dst");
+        FileUtil.CopyResult result = FileUtil.getInstance().copyDirParallel(src.getPath(), dst.getPath(), 4, false,
+                new FileUtil.OnCopyProgressListener() {
+                    @Override
+                    public void onProgress(File file, long copied, long total) {
+                        if (file.getName().equals("small3")) {
+                            throw new IllegalStateException("listener failed");
+                        }
+                    }
+                });
+        // 只有抛出异常的文件记录为失败，其余文件都拷贝完成
+        assertFalse(result.isSuccess());
+        assertEquals(1, result.getFailures().size());
+        assertTrue(result.getFailures().containsKey(new File(src, "small3").getPath()));
+        assertEquals(21, result.getFileCount());
+        assertArrayEquals(read(new File(src, "a/b/deep")), read(new File(dst, "a/b/deep")));
+        assertArrayEquals(read(new File(src, "small19")), read(new File(dst, "small19")));
+    }
+
+    private static File newTree(File root) throws IOException {
+        File deep = new File(root, "a/b");
+        assertTrue(deep.mkdirs());
+        write(new File(deep, "deep"), 70000, 6);
+        write(new File(root, "a/empty"), 0, 7);
+        for (int i = 0; i < 20; i++) {
+            write(new File(root, "small" + i), 100 + i, 8 + i);
+        }
+        return root;
+    }
+
+    private static void assertSameTree(File expected, File actual) throws IOException {
+        File[] children = expected.listFiles();
+        assertEquals(children.length, actual.listFiles().length);
+        for (File child : children) {
+            File copy = new File(actual, child.getName());
+            if (child.isDirectory()) {
+                assertTrue(copy.isDirectory());
+                assertSameTree(child, copy);
+            } else {
+                assertArrayEquals(read(child), read(copy));
+            }
+        }
+    }
+
+    private static File write(File file, int len, long seed) throws IOException {
+        byte[] data = new byte[len];
+        new Random(seed).nextBytes(data);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static byte[] read(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int read = 0;
+            int len;
+            while (read < data.length && (len = in.read(data, read, data.length - read)) != -1) {
+                read += len;
+            }
+            assertEquals(data.length, read);
+            assertEquals(-1, in.read());
+        } finally {
+            in.close();
+        }
+        return data;
+    }
+}
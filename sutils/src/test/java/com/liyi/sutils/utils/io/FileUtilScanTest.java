@@ -0,0 +1,82 @@
+package com.liyi.sutils.utils.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * FileUtil 扫描文件夹：单线程、多线程遍历以及取消
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class FileUtilScanTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = ACacheTestSupport.newCacheDir();
+        // 3 层、每层 3 个子文件夹，每个文件夹中 2 个文件
+        newTree(dir, 3);
+    }
+
+    @After
+    public void tearDown() {
+        ACacheTestSupport.delete(dir);
+    }
+
+    @Test
+    public void scanCountsTree() {
+        for (int parallelism : new int[]{1, 2, 8}) {
+            FileUtil.ScanResult result = FileUtil.getInstance().scan(dir, parallelism, null);
+            assertFalse(result.isCancelled());
+            assertEquals(39, result.getDirCount());
+            assertEquals(80, result.getFileCount());
+            assertEquals(80 * 10, result.getSize());
+        }
+    }
+
+    @Test
+    public void parallelScanFinishesRepeatedly() {
+        // 扫描结束后所有线程都要退出，不会停在等待队列上
+        for (int i = 0; i < 50; i++) {
+            assertEquals(80, FileUtil.getInstance().scan(dir, 4, null).getFileCount());
+        }
+    }
+
+    @Test
+    public void cancelledScanReturnsPartialResult() {
+        CancelSignal signal = new CancelSignal();
+        signal.cancel();
+        FileUtil.ScanResult result = FileUtil.getInstance().scan(dir, 4, signal);
+        assertTrue(result.isCancelled());
+        assertEquals(0, result.getFileCount());
+    }
+
+    private static void newTree(File root, int depth) throws IOException {
+        for (int i = 0; i < 2; i++) {
+            FileOutputStream out = new FileOutputStream(new File(root, "file" + i));
+            try {
+                out.write(new byte[10]);
+            } finally {
+                out.close();
+            }
+        }
+        if (depth == 0) {
+            return;
+        }
+        for (int i = 0; i < 3; i++) {
+            File child = new File(root, "dir" + i);
+            assertTrue(child.mkdir());
+            newTree(child, depth - 1);
+        }
+    }
+}